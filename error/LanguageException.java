@@ -13,6 +13,9 @@ public class LanguageException extends RuntimeException {
         UnitializedVariable("Variável não inicializada [%s]", 1),
         ConstantAssignment("Atribuição em variável constante [%s]", 1),
         InvalidType("Tipo inválido [%s]", 1),
+        IndexOutOfBounds("Índice fora dos limites [%s]", 1),
+        KeyNotFound("Chave não encontrada [%s]", 1),
+        InvalidFile("Arquivo inválido [%s]", 1),
         InvalidOperation("Operação inválida", 0);
 
         public final String msg;
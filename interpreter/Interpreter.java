@@ -2,6 +2,8 @@ package interpreter;
 
 import interpreter.command.Command;
 import interpreter.expr.Expr;
+import interpreter.io.Output;
+import interpreter.io.ValueWriter;
 import interpreter.value.Value;
 
 public class Interpreter {
@@ -21,7 +23,8 @@ public class Interpreter {
 
     public static void interpret(Expr expr) {
         Value v = expr.expr();
-        System.out.println(v);
+        new ValueWriter(Output.stdout(), ValueWriter.UNLIMITED).write(v);
+        Output.stdout().println();
     }
 
 }
@@ -1,21 +1,44 @@
 package interpreter.command;
 
+import error.LanguageException;
 import interpreter.expr.Expr;
+import interpreter.io.Output;
+import interpreter.io.ValueWriter;
+import interpreter.type.primitive.IntType;
 import interpreter.value.Value;
 
 public class DumpCommand extends Command {
 
     private Expr expr;
+    private Expr limit;
 
     public DumpCommand(int line, Expr expr) {
+        this(line, expr, null);
+    }
+
+    // limit caps the elements shown per collection; null shows them all.
+    public DumpCommand(int line, Expr expr, Expr limit) {
         super(line);
         this.expr = expr;
+        this.limit = limit;
     }
 
     @Override
     public void execute() {
         Value value = expr.expr();
-        System.out.println(value);
+        int n = ValueWriter.UNLIMITED;
+        if (limit != null) {
+            Value lvalue = limit.expr();
+            if (!IntType.instance().match(lvalue.type))
+                throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                    lvalue.type.toString());
+
+            n = Math.max((Integer) lvalue.data, 0);
+        }
+
+        Output out = Output.stdout();
+        new ValueWriter(out, n).write(value);
+        out.println();
     }
     
 }
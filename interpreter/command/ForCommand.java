@@ -1,12 +1,18 @@
 package interpreter.command;
 
 import error.LanguageException;
-import interpreter.Environment;
-import interpreter.Interpreter;
 import interpreter.expr.Expr;
+import interpreter.expr.SeqExpr;
 import interpreter.expr.Variable;
+import interpreter.type.Type;
+import interpreter.type.composed.ArrayType;
+import interpreter.type.composed.RangeType;
+import interpreter.type.composed.SeqType;
+import interpreter.type.primitive.CharType;
+import interpreter.value.ArrayData;
+import interpreter.value.Range;
+import interpreter.value.SeqData;
 import interpreter.value.Value;
-import interpreter.type.primitive.StringType;
 
 public class ForCommand extends Command {
 
@@ -23,58 +29,86 @@ public class ForCommand extends Command {
 
     @Override
     public void execute() {
-        //não esta funcionando
         Value iterable = expr.expr();
-        //System.out.println(iterable.data);
-        //System.out.println(iterable.type);
-        if (!(iterable.data instanceof Iterable<?>) && !(iterable.data instanceof String) ) {
-            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType, "Iterable expected");
+        switch (iterable.type.getCategory()) {
+            case String:
+                checkElementType(CharType.instance());
+                iterateString((CharSequence) iterable.data);
+                break;
+            case Array:
+                checkElementType(((ArrayType) iterable.type).getInnerType());
+                iterateArray((ArrayData) iterable.data);
+                break;
+            case Range:
+                checkElementType(((RangeType) iterable.type).getInnerType());
+                iterateRange((Range) iterable.data);
+                break;
+            case Set:
+            case Heap:
+            case Deque:
+            case SortedDict:
+                checkElementType(SeqExpr.elementType(super.getLine(), iterable.type));
+                iterateElements((Iterable<?>) iterable.data);
+                break;
+            case Seq:
+                checkElementType(((SeqType) iterable.type).getInnerType());
+                iterateSeq((SeqData) iterable.data);
+                break;
+            default:
+                throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                    iterable.type.toString());
         }
-        if (!(iterable.data instanceof String)){
-            for (Object item : (Iterable<?>) iterable.data) {
-                var.setValue(new Value(var.getType(), item));
-                cmds.execute();
-            }
-        } else {
-            String stringData = (String) iterable.data;
-            for (char ch : stringData.toCharArray()) {
-                var.setValue(new Value(var.getType(), ch));
-                cmds.execute();
-                }
-        }
-        
     }
-    //     Value initialValue = expr.expr(); 
-    //     BoolType boolType = BoolType.instance();
 
-    //     if (!boolType.match(initialValue.type)) {
-    //         throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType, initialValue.type.toString());
-    //     }
+    // The element type is checked once per loop, so each iteration
+    // can bind the variable directly without going through setValue.
+    private void checkElementType(Type elementType) {
+        if (!var.getType().match(elementType))
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                elementType.toString());
+    }
 
-    //     while (true) {
-    //         Value conditionValue = expr.expr(); 
-    //         if (!boolType.match(conditionValue.type)) {
-    //             throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType, conditionValue.type.toString());
-    //         }
+    private void iterateString(CharSequence str) {
+        for (int i = 0, n = str.length(); i < n; i++) {
+            var.bind(Value.of(str.charAt(i)));
+            cmds.execute();
+        }
+    }
 
-    //         boolean b = (Boolean) conditionValue.data;
-    //         if (!b) {
-    //             break; 
-    //         }
+    private void iterateArray(ArrayData elements) {
+        for (Value element : elements) {
+            var.bind(element.hold());
+            cmds.execute();
+        }
+    }
 
-    //         cmds.execute(); 
+    // Counted loop: no backing collection is built for the range.
+    private void iterateRange(Range range) {
+        int n;
+        try {
+            n = range.count();
+        } catch (ArithmeticException e) {
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidOperation);
+        }
+        for (int i = 0, k = range.from; i < n; i++, k += range.step) {
+            var.bind(Value.of(k));
+            cmds.execute();
+        }
+    }
 
-            
+    private void iterateElements(Iterable<?> elements) {
+        for (Object element : elements) {
+            var.bind(((Value) element).hold());
+            cmds.execute();
+        }
+    }
 
-    //         conditionValue = expr.expr();
-    //         if (!boolType.match(conditionValue.type)) {
-    //             throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType, conditionValue.type.toString());
-    //         }
+    private void iterateSeq(SeqData seq) {
+        seq.forEach(element -> {
+            var.bind(element.hold());
+            cmds.execute();
+            return true;
+        });
+    }
 
-    //         b = (Boolean) conditionValue.data;
-    //         if (!b) {
-    //             break; 
-    //         }
-    //     }
-    // }
 }
@@ -1,6 +1,8 @@
 package interpreter.command;
 
 import interpreter.expr.Expr;
+import interpreter.io.Output;
+import interpreter.io.ValueWriter;
 import interpreter.value.Value;
 
 public class PrintCommand extends Command {
@@ -17,9 +19,10 @@ public class PrintCommand extends Command {
     @Override
     public void execute() {
         Value value = expr.expr();
-        System.out.print(value.data);
+        Output out = Output.stdout();
+        new ValueWriter(out, ValueWriter.UNLIMITED).writeData(value);
         if (newline)
-            System.out.println();
+            out.println();
     }
     
 }
@@ -0,0 +1,25 @@
+package interpreter.command;
+
+import interpreter.expr.FormatExpr;
+import interpreter.io.Output;
+
+public class PrintfCommand extends Command {
+
+    private FormatExpr format;
+    private final StringBuilder sb = new StringBuilder();
+
+    public PrintfCommand(int line, FormatExpr format) {
+        super(line);
+        this.format = format;
+    }
+
+    // The line is rendered into a buffer kept by the command and copied
+    // into the output; no String is made for it.
+    @Override
+    public void execute() {
+        sb.setLength(0);
+        format.render(sb);
+        Output.stdout().print(sb);
+    }
+
+}
@@ -1,112 +1,263 @@
 package interpreter.expr;
 
-import java.util.List;
-import java.util.Map;
-
 import error.LanguageException;
 import interpreter.type.Type;
 import interpreter.type.Type.Category;
 import interpreter.type.composed.ArrayType;
+import interpreter.type.composed.CacheType;
 import interpreter.type.composed.DictType;
+import interpreter.type.composed.MatrixType;
+import interpreter.type.composed.RangeType;
+import interpreter.type.composed.SortedDictType;
+import interpreter.type.primitive.CharType;
+import interpreter.type.primitive.IntType;
+import interpreter.value.ArrayData;
+import interpreter.value.CacheData;
+import interpreter.value.DictData;
+import interpreter.value.MatrixData;
+import interpreter.value.Range;
+import interpreter.value.SortedDictData;
+import interpreter.value.StringSlice;
 import interpreter.value.Value;
 
 public class AccessExpr extends SetExpr {
     private SetExpr base;
     private Expr index;
+    private Expr column;
 
     public AccessExpr(int line, SetExpr base, Expr index) {
+        this(line, base, index, null);
+    }
+
+    // m[i, j] on a matrix; column is null for every other access.
+    public AccessExpr(int line, SetExpr base, Expr index, Expr column) {
         super(line);
         this.base = base;
         this.index = index;
+        this.column = column;
     }
 
     @Override
     public Value expr() {
-        /*Type baseType = base.expr().type;
-        ArrayType arrayType = ArrayType.instance();
-        if(baseType.match(arrayType)){
-            ArrayType arrayType2 = (ArrayType) baseType;
-            Type innerType = arrayType2.getInnerType();
-            List<?> listValue = new ArrayList(base.expr().data);
-            return new Value(innerType, listValue[index]);
-        }*/
         Value value = base.expr();
 
-        if (Category.Array == value.type.getCategory() || Category.String == value.type.getCategory()) {
+        if (Category.Matrix == value.type.getCategory()) {
+            MatrixData matrix = (MatrixData) value.data;
+            int i = checkIndex(index.expr(), matrix.rows());
+            if (column == null)
+                return new Value(value.type, matrix.row(i));
 
-            List<Value> elements = (List<Value>) value.data;
+            return matrix.get(i, checkIndex(column.expr(), matrix.cols()));
+        } else if (column != null) {
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidOperation);
+        } else if (Category.Array == value.type.getCategory()) {
+            ArrayData elements = (ArrayData) value.data;
+            Value ivalue = index.expr();
+            if (Category.Range == ivalue.type.getCategory()) {
+                Range range = checkSlice((Range) ivalue.data, elements.size());
+                return new Value(value.type, elements.slice(range.from, (int) range.end()));
+            }
 
-            int position = (int) index.expr().data;
-            Value element = elements.get(position);
-            return new Value(element.type, element);
+            return elements.get(checkIndex(ivalue, elements.size()));
+        } else if (Category.String == value.type.getCategory()) {
+            CharSequence str = (CharSequence) value.data;
+            Value ivalue = index.expr();
+            if (Category.Range == ivalue.type.getCategory()) {
+                Range range = checkSlice((Range) ivalue.data, str.length());
+                return new Value(value.type, StringSlice.slice(str, range.from, (int) range.end()));
+            }
+
+            return Value.of(str.charAt(checkIndex(ivalue, str.length())));
         } else if (Category.Dict == value.type.getCategory()) {
+            DictData dict = (DictData) value.data;
+            Value key = checkKey((DictType) value.type, index.expr());
 
-            List<DictItem> listDictItems = (List<DictItem>) value.data;
-            System.out.println("entrouDictAccess");
-            for(DictItem item : listDictItems){
-                System.out.println("Key: " + item.getKey().expr().data.toString());
-                System.out.println("Value: " + item.getValue().expr().data.toString());
-                if(item.getKey().expr().data == index.expr().data){
-                    Type typeValue = item.getValue().expr().type;
-                    return new Value(typeValue, item.getValue().expr());
-                }
-            }
-            System.out.println("vai dar erro Access");
-            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidOperation,index.expr().data.toString() + " not found in Dict.");
-           
+            Value v = dict.get(key);
+            if (v == null)
+                throw LanguageException.instance(super.getLine(), LanguageException.Error.KeyNotFound,
+                    key.toString());
+
+            return v;
+        } else if (Category.Cache == value.type.getCategory()) {
+            return cacheGet(value);
+        } else if (Category.SortedDict == value.type.getCategory()) {
+            SortedDictData dict = (SortedDictData) value.data;
+            SortedDictType dictType = (SortedDictType) value.type;
+            Value ivalue = index.expr();
+            if (Category.Range == ivalue.type.getCategory())
+                return new Value(value.type, rangeView(dictType, dict, (Range) ivalue.data));
+
+            checkType(dictType.getKeyType(), ivalue);
+            Value v = dict.get(ivalue);
+            if (v == null)
+                throw LanguageException.instance(super.getLine(), LanguageException.Error.KeyNotFound,
+                    ivalue.toString());
+
+            return v;
+        } else {
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                    value.type.toString());
+        }
+    }
+
+    // Every read is a lookup: it counts as a hit or a miss and makes the
+    // entry the most recently used one.
+    private Value cacheGet(Value cache) {
+        Value key = index.expr();
+        checkType(((CacheType) cache.type).getKeyType(), key);
+
+        Value v = ((CacheData) cache.data).get(key);
+        if (v == null)
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.KeyNotFound,
+                key.toString());
+
+        return v;
+    }
+
+    // d[lo..<hi] and d[lo...hi] on a dict with Int keys.
+    private SortedDictData rangeView(SortedDictType type, SortedDictData dict, Range range) {
+        checkType(type.getKeyType(), Value.of(0));
+        if (range.step != 1)
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidOperation);
+
+        return dict.range(Value.of(range.from), Value.of(range.to), range.inclusive);
+    }
+
+    @Override
+    public Value writable() {
+        Value value = base.writable();
+
+        if (Category.Array == value.type.getCategory()) {
+            ArrayData elements = (ArrayData) value.data;
+            return elements.getForUpdate(checkIndex(index.expr(), elements.size()));
+        } else if (Category.Dict == value.type.getCategory()) {
+            DictData dict = (DictData) value.data;
+            Value key = checkKey((DictType) value.type, index.expr());
+
+            Value v = dict.getForUpdate(key);
+            if (v == null)
+                throw LanguageException.instance(super.getLine(), LanguageException.Error.KeyNotFound,
+                    key.toString());
+
+            return v;
+        } else if (Category.Cache == value.type.getCategory()) {
+            return cacheGet(value);
+        } else if (Category.SortedDict == value.type.getCategory()) {
+            SortedDictData dict = (SortedDictData) value.data;
+            Value key = index.expr();
+            checkType(((SortedDictType) value.type).getKeyType(), key);
+
+            Value v = dict.getForUpdate(key);
+            if (v == null)
+                throw LanguageException.instance(super.getLine(), LanguageException.Error.KeyNotFound,
+                    key.toString());
+
+            return v;
         } else {
             throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
-                    value.type.toString() + "Access Error1");
+                    value.type.toString());
         }
-        
     }
 
     @Override
     public void setValue(Value value) {
-        Value value1 = base.expr();
-        System.out.println(value.data);
-        System.out.println("^setValue do Access");
-        List<DictItem> teste = (List<DictItem>) value1.data;
-        System.out.println(teste.size());
-        System.out.println("^Tamanho da base");
-        if (Category.Array == value1.type.getCategory() || Category.String == value1.type.getCategory()) {
-
-            List<Value> elements = (List<Value>) value1.data;
-            int position = (int) index.expr().data;
+        Value container = base.writable();
+
+        if (Category.Matrix == container.type.getCategory() && column != null) {
+            MatrixData matrix = (MatrixData) container.data;
+            checkType(((MatrixType) container.type).getInnerType(), value);
+
+            int i = checkIndex(index.expr(), matrix.rows());
+            matrix.set(i, checkIndex(column.expr(), matrix.cols()), value);
+        } else if (Category.Array == container.type.getCategory()) {
+            ArrayData elements = (ArrayData) container.data;
+            checkType(((ArrayType) container.type).getInnerType(), value);
+
+            int position = checkIndex(index.expr(), elements.size());
             elements.set(position, value);
+        } else if (Category.Dict == container.type.getCategory()) {
+            DictData dict = (DictData) container.data;
+            DictType dictType = (DictType) container.type;
+            checkType(dictType.getValueType(), value);
 
-        } else if (Category.Dict == value1.type.getCategory()) {
-            List<DictItem> listDictItems = (List<DictItem>) value1.data;
-            //DictType type = (DictType) value.type;
-            System.out.println("entrouDictAccess");
-            for(DictItem item : listDictItems){
-                if(item.getKey() == index.expr().data){
-                    DictItem dictItemOld = (DictItem) item.getKey().expr().data;
-                    listDictItems.remove(dictItemOld);
-                    Expr keyExpr = item.getKey();
-                    DictItem dictItem = new DictItem(keyExpr,null);
-                    Expr exprVal = new ConstExpr(0,value);
-                    dictItem.setValue(exprVal);
-                    listDictItems.add(dictItem);
-
-                }
-            }
-            /*Map<Expr, Expr> map = (Map<Expr, Expr>) value1.data;
-            DictType type = (DictType) value1.type;
-            DictItem item = (DictItem) value.data;
-
-            if (type.getCategory() == value.type.getCategory()) {
-                map.replace(item.key, item.value);
-                base = (SetExpr) map;
-            } else {
-                throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
-                        value.type.toString() + "AccessError2");
-            }*/
+            Value key = checkKey(dictType, index.expr());
+            dict.put(key, value);
+        } else if (Category.SortedDict == container.type.getCategory()) {
+            SortedDictData dict = (SortedDictData) container.data;
+            SortedDictType dictType = (SortedDictType) container.type;
+            checkType(dictType.getValueType(), value);
+
+            Value key = index.expr();
+            checkType(dictType.getKeyType(), key);
+            dict.put(key, value);
+        } else if (Category.Cache == container.type.getCategory()) {
+            CacheType cacheType = (CacheType) container.type;
+            checkType(cacheType.getValueType(), value);
+
+            Value key = index.expr();
+            checkType(cacheType.getKeyType(), key);
+            ((CacheData) container.data).put(key, value);
         } else {
             throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
-                    value.type.toString() + "AccessError3");
+                    container.type.toString());
         }
+    }
 
+    private void checkType(Type type, Value value) {
+        if (!type.match(value.type))
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                value.type.toString());
     }
-    
+
+    private Value checkKey(DictType type, Value key) {
+        checkType(type.getKeyType(), key);
+        return key;
+    }
+
+    private int checkIndex(Value ivalue, int size) {
+        checkType(IntType.instance(), ivalue);
+
+        int position = (Integer) ivalue.data;
+        if (position < 0 || position >= size)
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.IndexOutOfBounds,
+                Integer.toString(position));
+
+        return position;
+    }
+
+    // Only contiguous, in-bounds ranges are valid slices.
+    private Range checkSlice(Range range, int size) {
+        if (range.step != 1)
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidOperation);
+
+        if (range.from < 0 || range.end() > size || range.from > range.end())
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.IndexOutOfBounds,
+                range.toString());
+
+        return range;
+    }
+
+    @Override
+    public Type getType() {
+        Type baseType = base.getType();
+        boolean slice = index.getType() instanceof RangeType;
+        switch (baseType.getCategory()) {
+            case Array:
+                return slice ? baseType : ((ArrayType) baseType).getInnerType();
+            case String:
+                return slice ? baseType : CharType.instance();
+            case Dict:
+                return ((DictType) baseType).getValueType();
+            case SortedDict:
+                return slice ? baseType : ((SortedDictType) baseType).getValueType();
+            case Cache:
+                return ((CacheType) baseType).getValueType();
+            case Matrix:
+                return column != null ? ((MatrixType) baseType).getInnerType() : baseType;
+            default:
+                throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                    baseType.toString());
+        }
+    }
+
 }
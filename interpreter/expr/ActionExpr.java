@@ -1,39 +1,209 @@
 package interpreter.expr;
 
-import java.util.Scanner;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.InvalidPathException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Random;
 
 import error.InternalException;
+import error.LanguageException;
+import interpreter.io.Input;
+import interpreter.io.MappedFile;
+import interpreter.io.Output;
+import interpreter.type.Type;
+import interpreter.type.composed.ArrayType;
+import interpreter.type.composed.SeqType;
+import interpreter.type.composed.WriterType;
 import interpreter.type.primitive.FloatType;
+import interpreter.type.primitive.IntType;
 import interpreter.type.primitive.StringType;
+import interpreter.value.ArrayData;
+import interpreter.value.SeqData;
 import interpreter.value.Value;
 
 public class ActionExpr extends Expr {
     
     public static enum Op {
         Read,
-        Random
+        Random,
+        Lines,
+        ReadAll,
+        ReadFile,
+        Bytes,
+        WriteFile,
+        AppendFile,
+        OpenWrite,
+        OpenAppend
     }
 
-    private static Scanner in = new Scanner(System.in);
-
     private Op op;
+    private Expr path;
+    private Expr text;
 
     public ActionExpr(int line, Op op) {
+        this(line, op, null);
+    }
+
+    // path is the file to read; null for lines() over stdin.
+    public ActionExpr(int line, Op op, Expr path) {
+        this(line, op, path, null);
+    }
+
+    // text is what writeFile and appendFile write.
+    public ActionExpr(int line, Op op, Expr path, Expr text) {
         super(line);
         this.op = op;
+        this.path = path;
+        this.text = text;
     }
 
     @Override
     public Value expr() {
         switch (op) {
             case Read:
-                return new Value(StringType.instance(), in.nextLine().trim());
+                // Whatever was printed as a prompt must show up first.
+                Output.stdout().flush();
+                String line = Input.stdin().readLine();
+                if (line == null)
+                    throw LanguageException.instance(super.getLine(), LanguageException.Error.UnexpectedEOF);
+
+                return new Value(StringType.instance(), line.trim());
             case Random:
                 Random random = new Random();
                 float randomFloat = random.nextFloat();
                 return new Value(FloatType.instance(), randomFloat);
                 //throw new InternalException("Implement me!");
+            case Lines:
+                if (path != null) {
+                    final String file = path();
+                    return new Value(getType(), new SeqData(() -> {
+                        final Iterator<CharSequence> it = map(file).lines();
+                        return new Iterator<Value>() {
+                            @Override
+                            public boolean hasNext() {
+                                return it.hasNext();
+                            }
+
+                            @Override
+                            public Value next() {
+                                return new Value(StringType.instance(), it.next());
+                            }
+                        };
+                    }));
+                }
+
+                return new Value(getType(), new SeqData(() -> new Iterator<Value>() {
+                    private String line = Input.stdin().readLine();
+
+                    @Override
+                    public boolean hasNext() {
+                        return line != null;
+                    }
+
+                    @Override
+                    public Value next() {
+                        if (line == null)
+                            throw new NoSuchElementException();
+
+                        Value v = new Value(StringType.instance(), line);
+                        line = Input.stdin().readLine();
+                        return v;
+                    }
+                }));
+            case ReadAll:
+                Output.stdout().flush();
+                List<Value> lines = new ArrayList<Value>();
+                for (String s : Input.stdin().readAll())
+                    lines.add(new Value(StringType.instance(), s));
+
+                return new Value(getType(), new ArrayData(lines));
+            case ReadFile:
+                return new Value(getType(), map(path()).text());
+            case Bytes:
+                MappedFile mapped = map(path());
+                if (mapped.size() > Integer.MAX_VALUE)
+                    throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidOperation);
+
+                Value[] bytes = new Value[(int) mapped.size()];
+                for (int i = 0; i < bytes.length; i++)
+                    bytes[i] = Value.of(mapped.byteAt(i));
+
+                return new Value(getType(), ArrayData.of(bytes));
+            case WriteFile:
+            case AppendFile:
+                return writeFile(path(), op == Op.AppendFile);
+            case OpenWrite:
+            case OpenAppend:
+                String file = path();
+                try {
+                    return new Value(getType(), Output.open(file, op == Op.OpenAppend));
+                } catch (IOException | InvalidPathException e) {
+                    throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidFile, file);
+                }
+            default:
+                throw new InternalException("Unreachable");
+        }
+    }
+
+    private String path() {
+        Value v = path.expr();
+        if (!StringType.instance().match(v.type))
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                v.type.toString());
+
+        return v.data.toString();
+    }
+
+    // Returns the number of characters written.
+    private Value writeFile(String file, boolean append) {
+        Value v = text.expr();
+        if (!StringType.instance().match(v.type))
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                v.type.toString());
+
+        CharSequence cs = (CharSequence) v.data;
+        try {
+            Output.writeFile(file, cs, append);
+        } catch (IOException | UncheckedIOException | InvalidPathException e) {
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidFile, file);
+        }
+
+        return Value.of(cs.length());
+    }
+
+    private MappedFile map(String file) {
+        try {
+            return new MappedFile(file);
+        } catch (IOException | InvalidPathException e) {
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidFile, file);
+        }
+    }
+
+    @Override
+    public Type getType() {
+        switch (op) {
+            case Read:
+                return StringType.instance();
+            case Random:
+                return FloatType.instance();
+            case Lines:
+                return SeqType.instance(StringType.instance());
+            case ReadAll:
+                return ArrayType.instance(StringType.instance());
+            case ReadFile:
+                return StringType.instance();
+            case Bytes:
+                return ArrayType.instance(IntType.instance());
+            case WriteFile:
+            case AppendFile:
+                return IntType.instance();
+            case OpenWrite:
+            case OpenAppend:
+                return WriterType.instance();
             default:
                 throw new InternalException("Unreachable");
         }
@@ -3,12 +3,18 @@ package interpreter.expr;
 import java.util.ArrayList;
 import java.util.List;
 
+import error.LanguageException;
+import interpreter.type.Type;
 import interpreter.type.composed.ArrayType;
+import interpreter.type.primitive.FloatType;
+import interpreter.type.primitive.IntType;
+import interpreter.value.ArrayData;
 import interpreter.value.Value;
 
 public class ArrayExpr extends Expr {
     private ArrayType type;
     private List<Expr> items;
+    private Expr offHeapSize;
 
     public ArrayExpr(int line, ArrayType type, List<Expr> items) {
         super(line);
@@ -16,18 +22,59 @@ public class ArrayExpr extends Expr {
         this.items = items;
     }
 
+    // Array<Int>(offHeap: n) and Array<Float>(offHeap: n): n zeroes stored
+    // outside the Java heap.
+    public ArrayExpr(int line, ArrayType type, Expr offHeapSize) {
+        super(line);
+        this.type = type;
+        this.offHeapSize = offHeapSize;
+    }
+
     @Override
     public Value expr() {
-        List<Value> elementValues = new ArrayList<>();
+        if (offHeapSize != null)
+            return offHeapArray();
 
-    for (Expr item : items) {
-        Value itemValue = item.expr();
-        elementValues.add(itemValue);
-    }
+        Type innerType = type.getInnerType();
+        List<Value> elementValues = new ArrayList<>(items.size());
+
+        for (Expr item : items) {
+            Value itemValue = item.expr();
+            if (!innerType.match(itemValue.type))
+                throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                    itemValue.type.toString());
+
+            elementValues.add(itemValue);
+        }
+
+        // Int and Float arrays are held as primitives, so the numeric
+        // kernels work on them without unboxing.
+        if (IntType.instance().match(innerType) || FloatType.instance().match(innerType))
+            return new Value(type, ArrayData.numeric(elementValues, FloatType.instance().match(innerType)));
 
-    Value arrayValue = new Value(type, elementValues);
+        Value arrayValue = new Value(type, new ArrayData(elementValues));
 
-    return arrayValue;
+        return arrayValue;
     }
     
+
+    private Value offHeapArray() {
+        Value size = offHeapSize.expr();
+        if (!IntType.instance().match(size.type))
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                size.type.toString());
+
+        int n = (Integer) size.data;
+        if (n < 0)
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidOperation);
+
+        boolean floats = FloatType.instance().match(type.getInnerType());
+        return new Value(type, ArrayData.offHeap(n, floats));
+    }
+
+    @Override
+    public Type getType() {
+        return type;
+    }
+
 }
@@ -1,6 +1,7 @@
 package interpreter.expr;
 
 import error.LanguageException;
+import interpreter.type.Type;
 import interpreter.type.primitive.BoolType;
 import interpreter.type.primitive.FloatType;
 import interpreter.type.primitive.IntType;
@@ -293,8 +294,8 @@ public class BinaryExpr extends Expr {
             }
         } else if (stringType.match(lvalue.type)) {
             if (stringType.match(rvalue.type)) {
-                String m = (String) lvalue.data;
-                String n = (String) rvalue.data;
+                String m = lvalue.data.toString();
+                String n = rvalue.data.toString();
 
                 Value v = new Value(stringType, (m + n));
                 return v;
@@ -387,4 +388,17 @@ public class BinaryExpr extends Expr {
         }
     }
 
+    @Override
+    public Type getType() {
+        switch (op) {
+            case Add:
+            case Sub:
+            case Mul:
+            case Div:
+                return left.getType();
+            default:
+                return BoolType.instance();
+        }
+    }
+
 }
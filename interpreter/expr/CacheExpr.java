@@ -0,0 +1,47 @@
+package interpreter.expr;
+
+import error.LanguageException;
+import interpreter.type.Type;
+import interpreter.type.composed.CacheType;
+import interpreter.type.primitive.IntType;
+import interpreter.value.CacheData;
+import interpreter.value.Value;
+
+public class CacheExpr extends Expr {
+    private CacheType type;
+    private Expr capacity;
+    private Expr bytes;
+
+    // bytes is null when only the number of entries is bounded.
+    public CacheExpr(int line, CacheType type, Expr capacity, Expr bytes) {
+        super(line);
+        this.type = type;
+        this.capacity = capacity;
+        this.bytes = bytes;
+    }
+
+    @Override
+    public Value expr() {
+        int n = bound(capacity.expr());
+        int b = bytes != null ? bound(bytes.expr()) : 0;
+        return new Value(type, new CacheData(n, b));
+    }
+
+    private int bound(Value value) {
+        if (!IntType.instance().match(value.type))
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                value.type.toString());
+
+        int n = (Integer) value.data;
+        if (n <= 0)
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidOperation);
+
+        return n;
+    }
+
+    @Override
+    public Type getType() {
+        return type;
+    }
+
+}
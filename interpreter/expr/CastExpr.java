@@ -2,6 +2,7 @@ package interpreter.expr;
 
 
 import error.LanguageException;
+import interpreter.type.Type;
 import interpreter.type.composed.ArrayType;
 import interpreter.type.composed.DictType;
 import interpreter.type.primitive.BoolType;
@@ -83,13 +84,13 @@ public class CastExpr extends Expr {
         } else if (value.type instanceof CharType) {
             char charValue = (char) value.data;
             float floatValue = (float) charValue;
-            return new Value(IntType.instance(), floatValue);
+            return new Value(FloatType.instance(), floatValue);
         } else if (value.type instanceof IntType) {
             int intValue = (int) value.data;
             float floatValue = (float) intValue;
-            return new Value(IntType.instance(), floatValue);
+            return new Value(FloatType.instance(), floatValue);
         } else {
-            return new Value(floatType.instance(), 0.0);
+            return new Value(FloatType.instance(), 0.0f);
         }
     }
 
@@ -139,4 +140,23 @@ public class CastExpr extends Expr {
             throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType, value.type.toString());
         }
     }
+
+    @Override
+    public Type getType() {
+        switch (op) {
+            case ToBoolOp:
+                return BoolType.instance();
+            case ToIntOp:
+                return IntType.instance();
+            case ToFloatOp:
+                return FloatType.instance();
+            case ToCharOp:
+                return CharType.instance();
+            case ToStringOp:
+                return StringType.instance();
+            default:
+                throw new InternalError("unreachable");
+        }
+    }
+
 }
@@ -1,5 +1,6 @@
 package interpreter.expr;
 
+import interpreter.type.Type;
 import interpreter.value.Value;
 
 public class ConditionalExpr extends Expr {
@@ -27,4 +28,10 @@ public class ConditionalExpr extends Expr {
     }
     }
     
+
+    @Override
+    public Type getType() {
+        return trueExpr.getType();
+    }
+
 }
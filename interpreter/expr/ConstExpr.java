@@ -1,5 +1,6 @@
 package interpreter.expr;
 
+import interpreter.type.Type;
 import interpreter.value.Value;
 
 public class ConstExpr extends Expr {
@@ -16,4 +17,10 @@ public class ConstExpr extends Expr {
         return value;
     }
     
+
+    @Override
+    public Type getType() {
+        return value.type;
+    }
+
 }
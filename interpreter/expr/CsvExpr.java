@@ -0,0 +1,95 @@
+package interpreter.expr;
+
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+
+import error.LanguageException;
+import interpreter.io.Csv;
+import interpreter.io.MappedFile;
+import interpreter.type.Type;
+import interpreter.type.composed.ArrayType;
+import interpreter.type.composed.DictType;
+import interpreter.type.primitive.StringType;
+import interpreter.value.ArrayData;
+import interpreter.value.DictData;
+import interpreter.value.Value;
+
+public class CsvExpr extends Expr {
+
+    private ArrayType column;
+    private Expr path;
+    private Expr columns;
+
+    // loadCsv<T>(path, columns): every listed column is read as T, one of
+    // Int, Float or String.
+    public CsvExpr(int line, Type inner, Expr path, Expr columns) {
+        super(line);
+        this.column = ArrayType.instance(inner);
+        this.path = path;
+        this.columns = columns;
+    }
+
+    public static boolean loadable(Type type) {
+        switch (type.getCategory()) {
+            case Int:
+            case Float:
+            case String:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // Int and Float columns are off-heap arrays, so they hold 4 bytes per
+    // row and have a fixed size like Array<T>(offHeap: n).
+    @Override
+    public Value expr() {
+        String file = string(path.expr());
+        Value v = columns.expr();
+        if (!ArrayType.instance(StringType.instance()).match(v.type))
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                v.type.toString());
+
+        ArrayData names = (ArrayData) v.data;
+        String[] selected = new String[names.size()];
+        for (int i = 0; i < selected.length; i++)
+            selected[i] = names.get(i).data.toString();
+
+        Csv.Kind kind = Csv.Kind.valueOf(column.getInnerType().getCategory().name());
+        Csv.Columns loaded;
+        try {
+            loaded = Csv.load(new MappedFile(file), selected, kind);
+        } catch (IOException | InvalidPathException e) {
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidFile, file);
+        } catch (Csv.MissingColumnException e) {
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.KeyNotFound, e.column);
+        } catch (Csv.CsvException e) {
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidLexeme,
+                String.format("csv %d: %s", e.line, e.getMessage()));
+        }
+
+        DictData dict = new DictData();
+        for (int c = 0; c < selected.length; c++) {
+            ArrayData data = kind == Csv.Kind.String ?
+                ArrayData.of(loaded.values[c]) :
+                ArrayData.offHeap(loaded.bits[c], loaded.rows, kind == Csv.Kind.Float);
+            dict.put(new Value(StringType.instance(), selected[c]), new Value(column, data));
+        }
+
+        return new Value(getType(), dict);
+    }
+
+    private String string(Value v) {
+        if (!StringType.instance().match(v.type))
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                v.type.toString());
+
+        return v.data.toString();
+    }
+
+    @Override
+    public Type getType() {
+        return DictType.instance(StringType.instance(), column);
+    }
+
+}
@@ -0,0 +1,43 @@
+package interpreter.expr;
+
+import java.util.List;
+
+import error.LanguageException;
+import interpreter.type.Type;
+import interpreter.type.composed.DequeType;
+import interpreter.value.DequeData;
+import interpreter.value.Value;
+
+public class DequeExpr extends Expr {
+    private DequeType type;
+    private List<Expr> items;
+
+    public DequeExpr(int line, DequeType type, List<Expr> items) {
+        super(line);
+        this.type = type;
+        this.items = items;
+    }
+
+    @Override
+    public Value expr() {
+        Type innerType = type.getInnerType();
+        DequeData deque = new DequeData();
+
+        for (Expr item : items) {
+            Value itemValue = item.expr();
+            if (!innerType.match(itemValue.type))
+                throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                    itemValue.type.toString());
+
+            deque.pushBack(itemValue);
+        }
+
+        return new Value(type, deque);
+    }
+
+    @Override
+    public Type getType() {
+        return type;
+    }
+
+}
@@ -2,11 +2,11 @@ package interpreter.expr;
 
 import interpreter.type.Type;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 
+import error.LanguageException;
 import interpreter.type.composed.DictType;
+import interpreter.value.DictData;
 import interpreter.value.Value;
 
 public class DictExpr extends Expr{
@@ -21,20 +21,25 @@ public class DictExpr extends Expr{
 
     @Override
     public Value expr() {
-        System.out.println(items);
-        System.out.println("^Items DicExpr");
-        List<DictItem> listDictItems = new ArrayList<>(items);
-        System.out.println(listDictItems);
-        System.out.println("^DictExpr retorno");
-        /*for (DictItem item : items) {
-            Value key = item.key.expr();     
-            Value value = item.value.expr(); 
-            dictMap.put(key, value);
-        }*/
-        //Possivelmente errado
-        return new Value(type, listDictItems);
+        DictData dict = new DictData();
+        for (DictItem item : items) {
+            Value key = item.getKey().expr();
+            Value value = item.getValue().expr();
+            checkType(type.getKeyType(), key);
+            checkType(type.getValueType(), value);
+            dict.put(key, value);
+        }
+
+        return new Value(type, dict);
+    }
+
+    private void checkType(Type expected, Value value) {
+        if (!expected.match(value.type))
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                value.type.toString());
     }
     
+    @Override
     public Type getType(){
         return this.type;
     }
@@ -1,5 +1,6 @@
 package interpreter.expr;
 
+import interpreter.type.Type;
 import interpreter.value.Value;
 
 public abstract class Expr {
@@ -16,4 +17,7 @@ public abstract class Expr {
 
     public abstract Value expr();
 
+    // Static type of the expression, known at parse time.
+    public abstract Type getType();
+
 }
@@ -0,0 +1,97 @@
+package interpreter.expr;
+
+import java.util.List;
+
+import error.LanguageException;
+import interpreter.io.Format;
+import interpreter.type.Type;
+import interpreter.type.primitive.StringType;
+import interpreter.value.Value;
+
+public class FormatExpr extends Expr {
+
+    private Expr format;
+    private Expr[] args;
+    private final Value[] values;
+    private final StringBuilder sb = new StringBuilder();
+
+    // Set when the format is a string literal, compiled and checked
+    // against the arguments' types while parsing.
+    private Format compiled;
+
+    // Format of the last call with a computed format, kept for reuse
+    // while the format text stays the same.
+    private String lastText;
+    private Format last;
+
+    public FormatExpr(int line, Expr format, List<Expr> args) {
+        super(line);
+        this.format = format;
+        this.args = args.toArray(new Expr[args.size()]);
+        this.values = new Value[this.args.length];
+
+        if (format instanceof ConstExpr && StringType.instance().match(format.getType())) {
+            compiled = compile(format.expr().data.toString());
+            for (int i = 0; i < this.args.length; i++) {
+                Type type = this.args[i].getType();
+                if (!compiled.accepts(i, type))
+                    throw LanguageException.instance(line, LanguageException.Error.InvalidType, type.toString());
+            }
+        }
+    }
+
+    @Override
+    public Value expr() {
+        sb.setLength(0);
+        render(sb);
+        return new Value(StringType.instance(), sb.toString());
+    }
+
+    // Appends the formatted text to sb.
+    public void render(StringBuilder sb) {
+        Format f = compiled != null ? compiled : format();
+        for (int i = 0; i < args.length; i++) {
+            values[i] = args[i].expr();
+            if (compiled == null && !f.accepts(i, values[i].type))
+                throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                    values[i].type.toString());
+        }
+
+        f.render(sb, values);
+    }
+
+    private Format format() {
+        Value v = format.expr();
+        if (!StringType.instance().match(v.type))
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                v.type.toString());
+
+        String text = v.data.toString();
+        if (!text.equals(lastText)) {
+            last = compile(text);
+            lastText = text;
+        }
+
+        return last;
+    }
+
+    private Format compile(String text) {
+        Format f;
+        try {
+            f = Format.compile(text);
+        } catch (Format.FormatException e) {
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidLexeme, text);
+        }
+
+        if (f.arguments() != args.length)
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidOperation);
+
+        return f;
+    }
+
+    @Override
+    public Type getType() {
+        return StringType.instance();
+    }
+
+}
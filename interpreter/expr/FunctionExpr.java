@@ -1,20 +1,42 @@
 package interpreter.expr;
 
-
-import java.util.HashMap;
-
+import error.InternalException;
+import error.LanguageException;
+import interpreter.io.Output;
+import interpreter.io.ValueWriter;
 import interpreter.type.Type;
-import interpreter.type.Type.Category;
 import interpreter.type.composed.ArrayType;
+import interpreter.type.composed.CacheType;
+import interpreter.type.composed.DequeType;
 import interpreter.type.composed.DictType;
+import interpreter.type.composed.HeapType;
+import interpreter.type.composed.MatrixType;
+import interpreter.type.composed.SetType;
+import interpreter.type.composed.SortedDictType;
+import interpreter.type.composed.WriterType;
 import interpreter.type.primitive.BoolType;
+import interpreter.type.primitive.CharType;
+import interpreter.type.primitive.FloatType;
 import interpreter.type.primitive.IntType;
 import interpreter.type.primitive.StringType;
-import interpreter.type.primitive.CharType;
+import interpreter.value.ArrayData;
+import interpreter.value.ArrayKernels;
+import interpreter.value.CacheData;
+import interpreter.value.DequeData;
+import interpreter.value.DictData;
+import interpreter.value.HeapData;
+import interpreter.value.MatrixData;
+import interpreter.value.Range;
+import interpreter.value.SetData;
+import interpreter.value.SortedDictData;
+import interpreter.value.StringData;
+import interpreter.value.StringSlice;
+import interpreter.value.TextSearch;
 import interpreter.value.Value;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
 
 public class FunctionExpr extends Expr {
     public static enum FunctionOp{
@@ -23,39 +45,97 @@ public class FunctionExpr extends Expr {
         Keys,
         Values,
         Append,
-        Contains
+        Contains,
+        Sort,
+        Sorted,
+        Reverse,
+        Min,
+        Max,
+        Sum,
+        Add,
+        Scale,
+        Dot,
+        Rows,
+        Cols,
+        Transpose,
+        Multiply,
+        Insert,
+        Remove,
+        Union,
+        Intersection,
+        Difference,
+        Push,
+        Pop,
+        Peek,
+        PushFront,
+        PushBack,
+        PopFront,
+        PopBack,
+        Front,
+        Back,
+        Floor,
+        Ceiling,
+        Get,
+        Hits,
+        Misses,
+        Evictions,
+        Write,
+        Writeln,
+        Flush,
+        Close,
+        Find,
+        Split,
+        Replace,
+        StartsWith,
+        Trim,
+        Join
     }
 
     private FunctionOp op;
     private Expr expr;
     private Expr arg;
+    private Expr arg2;
 
     public FunctionExpr(int line, FunctionOp op, Expr expr, Expr arg) {
+        this(line, op, expr, arg, null);
+    }
+
+    // get(key, default) on a cache and replace(target, replacement) on a
+    // string are the ops with two arguments.
+    public FunctionExpr(int line, FunctionOp op, Expr expr, Expr arg, Expr arg2) {
         super(line);
         this.op = op;
         this.expr = expr;
         this.arg = arg;
+        this.arg2 = arg2;
     }
 
     @Override
     public Value expr() {
-        Value value = expr.expr();
+        // append, sort and reverse write into their receiver, so it must
+        // not see storage shared with other variables.
+        boolean inPlace = op == FunctionOp.Append || op == FunctionOp.Sort || op == FunctionOp.Reverse ||
+            op == FunctionOp.Insert || op == FunctionOp.Remove || op == FunctionOp.Push ||
+            op == FunctionOp.Pop || op == FunctionOp.PushFront || op == FunctionOp.PushBack ||
+            op == FunctionOp.PopFront || op == FunctionOp.PopBack || op == FunctionOp.Get;
+        Value value = (inPlace && expr instanceof SetExpr) ?
+            ((SetExpr) expr).writable() : expr.expr();
         Value varg = null;
         if(arg != null)
             varg = arg.expr();
         Value ret = null;
         switch(op){
             case Count:
-                ret = countOp(value,varg);
+                ret = countOp(value);
                 break;
             case Empty:
-                ret = emptyOp(value,varg);
+                ret = emptyOp(value);
                 break;
             case Keys:
-                ret = keysOp(value,varg);
+                ret = keysOp(value);
                 break;
             case Values:
-                ret = valuesOp(value,varg);
+                ret = valuesOp(value);
                 break;
             case Append:
                 ret = appendOp(value,varg);
@@ -63,6 +143,109 @@ public class FunctionExpr extends Expr {
             case Contains:
                 ret = containsOp(value,varg);
                 break;
+            case Sort:
+                Type sortType = sortableType(value);
+                ((ArrayData) value.data).replace(ArrayKernels.sort((ArrayData) value.data, sortType));
+                ret = value;
+                break;
+            case Sorted:
+                Type sortedType = sortableType(value);
+                // The list constructor holds each element, as they are
+                // still stored in the receiver too.
+                ret = new Value(value.type,
+                    new ArrayData(Arrays.asList(ArrayKernels.sort((ArrayData) value.data, sortedType))));
+                break;
+            case Reverse:
+                arrayType(value);
+                ((ArrayData) value.data).reverse();
+                ret = value;
+                break;
+            case Min:
+            case Max:
+                ret = extremeOp(value);
+                break;
+            case Sum:
+                Type sumType = numericType(value);
+                ret = ArrayKernels.sum((ArrayData) value.data, sumType);
+                break;
+            case Add:
+                Type addType = numericType(value);
+                ret = new Value(value.type,
+                    ArrayKernels.add((ArrayData) value.data, sameShape(value, varg), addType));
+                break;
+            case Scale:
+                Type scaleType = numericType(value);
+                checkType(scaleType, varg);
+                ret = new Value(value.type,
+                    ArrayKernels.scale((ArrayData) value.data, varg, scaleType));
+                break;
+            case Dot:
+                Type dotType = numericType(value);
+                ret = ArrayKernels.dot((ArrayData) value.data, sameShape(value, varg), dotType);
+                break;
+            case Rows:
+                ret = Value.of(matrix(value).rows());
+                break;
+            case Cols:
+                ret = Value.of(matrix(value).cols());
+                break;
+            case Transpose:
+                ret = new Value(value.type, matrix(value).transpose());
+                break;
+            case Multiply:
+                ret = multiplyOp(value, varg);
+                break;
+            case Insert:
+                checkType(setType(value).getInnerType(), varg);
+                ret = new Value(BoolType.instance(), ((SetData) value.data).insert(varg));
+                break;
+            case Remove:
+                ret = removeOp(value, varg);
+                break;
+            case Floor:
+            case Ceiling:
+                ret = floorCeilingOp(value, varg);
+                break;
+            case Union:
+            case Intersection:
+            case Difference:
+                ret = setAlgebraOp(value, varg);
+                break;
+            case Push:
+            case Pop:
+            case Peek:
+                ret = heapOp(value, varg);
+                break;
+            case PushFront:
+            case PushBack:
+            case PopFront:
+            case PopBack:
+            case Front:
+            case Back:
+                ret = dequeOp(value, varg);
+                break;
+            case Get:
+            case Hits:
+            case Misses:
+            case Evictions:
+                ret = cacheOp(value, varg);
+                break;
+            case Write:
+            case Writeln:
+            case Flush:
+            case Close:
+                ret = writerOp(value, varg);
+                break;
+            case Find:
+            case Split:
+            case Replace:
+            case StartsWith:
+            case Trim:
+                ret = stringOp(value, varg);
+                break;
+            case Join:
+                ret = joinOp(value, varg);
+                break;
             default:
                 throw new InternalError("unreachable");
         }
@@ -70,95 +253,610 @@ public class FunctionExpr extends Expr {
         return ret;
     }
 
-    private Value containsOp(Value value, Value varg) {
-            if (value.type.getCategory() == Category.Dict){
-                DictType dictType = (DictType) value.type;
-                Type innerType = dictType.getKeyType();
-                if (varg.type.getCategory() == innerType.getCategory()){
-                    List<DictItem> listDict = (List<DictItem>) value.data;
-                    for (DictItem item : listDict){
-                        if(item.getKey() == varg.data){
-                            return new Value(BoolType.instance(), true);
-                        }
-                    }
-                }
-                return new Value(BoolType.instance(), false);
+    private Value extremeOp(Value value) {
+        Type elementType = sortableType(value);
+        ArrayData data = (ArrayData) value.data;
+        if (data.isEmpty())
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidOperation);
+
+        return op == FunctionOp.Min ? ArrayKernels.min(data, elementType) : ArrayKernels.max(data, elementType);
+    }
+
+    private ArrayType arrayType(Value value) {
+        if (!(value.type instanceof ArrayType))
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                value.type.toString());
+
+        return (ArrayType) value.type;
+    }
+
+    // Element types the native kernels know how to order.
+    private Type sortableType(Value value) {
+        Type inner = arrayType(value).getInnerType();
+        switch (inner.getCategory()) {
+            case Int:
+            case Float:
+            case Char:
+            case String:
+                return inner;
+            default:
+                throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                    inner.toString());
+        }
+    }
+
+    private Type numericType(Value value) {
+        Type inner = arrayType(value).getInnerType();
+        if (!IntType.instance().match(inner) && !FloatType.instance().match(inner))
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                inner.toString());
+
+        return inner;
+    }
+
+    private SetType setType(Value value) {
+        if (!(value.type instanceof SetType))
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                value.type.toString());
+
+        return (SetType) value.type;
+    }
+
+    private Value removeOp(Value value, Value varg) {
+        if (value.type instanceof CacheType) {
+            checkType(((CacheType) value.type).getKeyType(), varg);
+            return new Value(BoolType.instance(), ((CacheData) value.data).remove(varg));
+        }
+
+        if (value.type instanceof SortedDictType) {
+            checkType(((SortedDictType) value.type).getKeyType(), varg);
+            return new Value(BoolType.instance(), ((SortedDictData) value.data).remove(varg));
+        }
+
+        checkType(setType(value).getInnerType(), varg);
+        return new Value(BoolType.instance(), ((SetData) value.data).remove(varg));
+    }
+
+    // Greatest key <= varg, or least key >= varg.
+    private Value floorCeilingOp(Value value, Value varg) {
+        if (!(value.type instanceof SortedDictType))
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                value.type.toString());
+
+        checkType(((SortedDictType) value.type).getKeyType(), varg);
+        SortedDictData dict = (SortedDictData) value.data;
+        Value key = op == FunctionOp.Floor ? dict.floorKey(varg) : dict.ceilingKey(varg);
+        if (key == null)
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.KeyNotFound,
+                varg.toString());
+
+        return key;
+    }
+
+    private Value setAlgebraOp(Value value, Value varg) {
+        setType(value);
+        checkType(value.type, varg);
+
+        SetData a = (SetData) value.data, b = (SetData) varg.data;
+        switch (op) {
+            case Union:
+                return new Value(value.type, a.union(b));
+            case Intersection:
+                return new Value(value.type, a.intersection(b));
+            default:
+                return new Value(value.type, a.difference(b));
+        }
+    }
+
+    private Value heapOp(Value value, Value varg) {
+        if (!(value.type instanceof HeapType))
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                value.type.toString());
+
+        HeapData heap = (HeapData) value.data;
+        if (op == FunctionOp.Push) {
+            checkType(((HeapType) value.type).getInnerType(), varg);
+            heap.push(varg);
+            return value;
+        }
+
+        if (heap.isEmpty())
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidOperation);
+
+        return op == FunctionOp.Pop ? heap.pop() : heap.peek();
+    }
+
+    private Value dequeOp(Value value, Value varg) {
+        if (!(value.type instanceof DequeType))
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                value.type.toString());
+
+        DequeData deque = (DequeData) value.data;
+        if (op == FunctionOp.PushFront || op == FunctionOp.PushBack) {
+            checkType(((DequeType) value.type).getInnerType(), varg);
+            if (op == FunctionOp.PushFront)
+                deque.pushFront(varg);
+            else
+                deque.pushBack(varg);
+
+            return value;
+        }
+
+        if (deque.isEmpty())
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidOperation);
+
+        switch (op) {
+            case PopFront:
+                return deque.popFront();
+            case PopBack:
+                return deque.popBack();
+            case Front:
+                return deque.front();
+            default:
+                return deque.back();
+        }
+    }
+
+    private Value cacheOp(Value value, Value varg) {
+        if (!(value.type instanceof CacheType))
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                value.type.toString());
+
+        CacheData cache = (CacheData) value.data;
+        switch (op) {
+            case Get:
+                CacheType cacheType = (CacheType) value.type;
+                checkType(cacheType.getKeyType(), varg);
+                Value v = cache.get(varg);
+                if (v != null)
+                    return v;
+
+                // The default is only evaluated on a miss.
+                Value fallback = arg2.expr();
+                checkType(cacheType.getValueType(), fallback);
+                return fallback;
+            case Hits:
+                return Value.of((int) cache.hits());
+            case Misses:
+                return Value.of((int) cache.misses());
+            default:
+                return Value.of((int) cache.evictions());
+        }
+    }
+
+    // Writes like print does; every op returns the writer.
+    private Value writerOp(Value value, Value varg) {
+        if (!(value.type instanceof WriterType))
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                value.type.toString());
+
+        Output out = (Output) value.data;
+        if (out.isClosed()) {
+            if (op == FunctionOp.Close)
+                return value;
+
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidOperation);
+        }
+
+        // A failed write may surface at any of these, as buffers are
+        // written out when they fill and in the background.
+        try {
+            switch (op) {
+                case Write:
+                case Writeln:
+                    new ValueWriter(out, ValueWriter.UNLIMITED).writeData(varg);
+                    if (op == FunctionOp.Writeln)
+                        out.println();
+                    break;
+                case Flush:
+                    out.flush();
+                    break;
+                default:
+                    out.close();
+                    break;
             }
-        return null;
+        } catch (UncheckedIOException e) {
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidFile, out.path());
+        }
+
+        return value;
+    }
+
+    private Value stringOp(Value value, Value varg) {
+        if (!StringType.instance().match(value.type))
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                value.type.toString());
+
+        CharSequence cs = (CharSequence) value.data;
+        switch (op) {
+            case Find:
+                return Value.of(TextSearch.find(cs, text(varg)));
+            case StartsWith:
+                return new Value(BoolType.instance(), new TextSearch(text(varg)).startsWith(cs));
+            case Split:
+                return new Value(ArrayType.instance(StringType.instance()), ArrayData.of(split(cs, text(varg))));
+            case Replace:
+                return new Value(StringType.instance(), replace(cs, text(varg), text(arg2.expr())));
+            default:
+                int from = 0, to = cs.length();
+                while (from < to && Character.isWhitespace(cs.charAt(from)))
+                    from++;
+                while (to > from && Character.isWhitespace(cs.charAt(to - 1)))
+                    to--;
+
+                return new Value(StringType.instance(), StringSlice.slice(cs, from, to));
+        }
+    }
+
+    // The pieces are views over the receiver; nothing is copied.
+    private Value[] split(CharSequence cs, CharSequence separator) {
+        if (separator.length() == 0)
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidOperation);
+
+        TextSearch search = new TextSearch(separator);
+        List<Value> pieces = new ArrayList<Value>();
+        int from = 0;
+        for (int i = search.find(cs, 0); i >= 0; i = search.find(cs, from)) {
+            pieces.add(new Value(StringType.instance(), StringSlice.slice(cs, from, i)));
+            from = i + search.length();
+        }
+        pieces.add(new Value(StringType.instance(), StringSlice.slice(cs, from, cs.length())));
+
+        return pieces.toArray(new Value[pieces.size()]);
+    }
+
+    private CharSequence replace(CharSequence cs, CharSequence target, CharSequence replacement) {
+        if (target.length() == 0)
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidOperation);
+
+        TextSearch search = new TextSearch(target);
+        int i = search.find(cs, 0);
+        if (i < 0)
+            return cs;
+
+        StringBuilder sb = new StringBuilder(cs.length());
+        int from = 0;
+        for (; i >= 0; i = search.find(cs, from)) {
+            sb.append(cs, from, i).append(replacement);
+            from = i + search.length();
+        }
+
+        return sb.append(cs, from, cs.length()).toString();
+    }
+
+    private Value joinOp(Value value, Value varg) {
+        Type inner = arrayType(value).getInnerType();
+        if (!StringType.instance().match(inner) && !CharType.instance().match(inner))
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                inner.toString());
+
+        CharSequence separator = text(varg);
+        ArrayData data = (ArrayData) value.data;
+        int length = 0;
+        for (int i = 0; i < data.size(); i++) {
+            Object e = data.get(i).data;
+            length += (i > 0 ? separator.length() : 0) + (e instanceof Character ? 1 : ((CharSequence) e).length());
+        }
+
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < data.size(); i++) {
+            if (i > 0)
+                sb.append(separator);
+
+            Object e = data.get(i).data;
+            if (e instanceof Character)
+                sb.append((char) (Character) e);
+            else
+                sb.append((CharSequence) e);
+        }
+
+        return new Value(StringType.instance(), sb.toString());
+    }
+
+    // A Char or String argument as text.
+    private CharSequence text(Value varg) {
+        if (CharType.instance().match(varg.type))
+            return String.valueOf((char) (Character) varg.data);
+
+        if (!StringType.instance().match(varg.type))
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                varg.type.toString());
+
+        return (CharSequence) varg.data;
+    }
+
+    private MatrixData matrix(Value value) {
+        if (!(value.type instanceof MatrixType))
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                value.type.toString());
+
+        return (MatrixData) value.data;
+    }
+
+    private Value multiplyOp(Value value, Value varg) {
+        MatrixData a = matrix(value);
+        checkType(value.type, varg);
+
+        MatrixData b = (MatrixData) varg.data;
+        if (a.cols() != b.rows())
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidOperation);
+
+        try {
+            return new Value(value.type, a.multiply(b));
+        } catch (ArithmeticException e) {
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidOperation);
+        }
+    }
+
+    // Elementwise operations need an array of the same type and length.
+    private ArrayData sameShape(Value value, Value varg) {
+        checkType(value.type, varg);
+
+        ArrayData other = (ArrayData) varg.data;
+        if (other.size() != ((ArrayData) value.data).size())
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidOperation);
+
+        return other;
+    }
+
+    private Value containsOp(Value value, Value varg) {
+        switch (value.type.getCategory()) {
+            case String:
+                if (StringType.instance().match(varg.type))
+                    return new Value(BoolType.instance(), TextSearch.find((CharSequence) value.data, (CharSequence) varg.data) >= 0);
+
+                checkType(CharType.instance(), varg);
+                return new Value(BoolType.instance(), indexOf((CharSequence) value.data, (Character) varg.data) >= 0);
+            case Array:
+                checkType(((ArrayType) value.type).getInnerType(), varg);
+                return new Value(BoolType.instance(), ((ArrayData) value.data).contains(varg));
+            case Dict:
+                checkType(((DictType) value.type).getKeyType(), varg);
+                return new Value(BoolType.instance(), ((DictData) value.data).containsKey(varg));
+            case Set:
+                checkType(((SetType) value.type).getInnerType(), varg);
+                return new Value(BoolType.instance(), ((SetData) value.data).contains(varg));
+            case SortedDict:
+                checkType(((SortedDictType) value.type).getKeyType(), varg);
+                return new Value(BoolType.instance(), ((SortedDictData) value.data).containsKey(varg));
+            case Cache:
+                checkType(((CacheType) value.type).getKeyType(), varg);
+                return new Value(BoolType.instance(), ((CacheData) value.data).containsKey(varg));
+            default:
+                throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                    value.type.toString());
+        }
     }
 
     private Value appendOp(Value value, Value varg) {
-        //Tem que completar
-        return null;
-    }
-
-    private Value valuesOp(Value value, Value varg) {
-        //Tem que completar
-        return null;
-    }
-
-    private Value keysOp(Value value, Value varg) {
-          if (arg != null) {
-        throw new UnsupportedOperationException("Operação 'keys' não suporta argumentos");
-    }
-   
-    if (value.type instanceof DictType) {
-        DictType dictType = (DictType) value.type;
-        Type keyType = dictType.getKeyType();
-        HashMap<?,?> dictHash = (HashMap<?,?>) value.data;
-        Set<?> dictSet = dictHash.keySet();
-        List<?> keyArray = null;
-        Type arrayType = null;
-        
-        if(keyType.match(StringType.instance())){
-            keyArray = (List<StringType>) dictHash.keySet();
-            arrayType = StringType.instance();
-        } else if (keyType.match(CharType.instance())){
-            keyArray = new ArrayList<>(dictSet); 
-            arrayType = CharType.instance();
-        }
-        
-        return new Value(ArrayType.instance(arrayType), keyArray);
-    } else {
-        throw new UnsupportedOperationException("Operação 'keys' não suportada para o tipo de valor fornecido");
-    }
-    }
-
-    private Value emptyOp(Value value, Value varg) {
-        if (arg != null) {
-        throw new UnsupportedOperationException("Operação 'empty' não suporta argumentos");
-    }
-    if (value.type instanceof StringType) {
-        String str = (String) value.data;
-        return new Value(BoolType.instance(), str == null);
-    } else if (value.type instanceof ArrayType) {
-       ArrayExpr arrayValue = (ArrayExpr) value.data;
-        return new Value(BoolType.instance(),arrayValue == null);
-    } else if (value.type instanceof DictType) {
-        DictExpr dict = (DictExpr) value.data;
-        return new Value(BoolType.instance(), dict == null);
-    } else {
-        throw new UnsupportedOperationException("Operação 'empty' não suportada para o tipo de valor fornecido");
-    }
-    }
-
-    private Value countOp(Value value, Value varg) {
-        int count = 0;
-        if (varg != null) {
-        throw new IllegalArgumentException("A função 'count' não aceita argumentos.");
-    }
-    if (value.type instanceof StringType) {
-        String stringValue = (String) value.data;
-        count = stringValue.length();
-        return new Value(IntType.instance(), count);
-    } else if (value.type instanceof ArrayType) {
-        ArrayExpr arrayValue = (ArrayExpr) value.data;
-        String count2 = arrayValue.toString();
-        count = count2.length();
-        return new Value(IntType.instance(), count);
-    } else {
-        throw new IllegalArgumentException("A função 'count' só pode ser aplicada a strings ou arrays.");
-    }
-    }
-    
+        switch (value.type.getCategory()) {
+            case String:
+                return appendString(value, varg);
+            case Array:
+                checkType(((ArrayType) value.type).getInnerType(), varg);
+                if (((ArrayData) value.data).isOffHeap())
+                    throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidOperation);
+
+                ((ArrayData) value.data).append(varg);
+                return value;
+            default:
+                throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                    value.type.toString());
+        }
+    }
+
+    // Plain strings are immutable, so the first append moves the text into
+    // a growable StringData owned by the receiver; later appends reuse it.
+    // Only a receiver reached through writable() is appended to in place:
+    // any other, such as the result of max() or peek(), may be a value
+    // still stored elsewhere, so it is copied first.
+    private Value appendString(Value value, Value varg) {
+        if (!CharType.instance().match(varg.type) && !StringType.instance().match(varg.type))
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                varg.type.toString());
+
+        CharSequence cs = (CharSequence) value.data;
+        StringData sd;
+        if (cs instanceof StringData && expr instanceof SetExpr) {
+            sd = (StringData) cs;
+        } else {
+            sd = new StringData(cs, cs.length() * 2);
+            value = new Value(StringType.instance(), sd);
+            if (expr instanceof SetExpr)
+                ((SetExpr) expr).replaceValue(value);
+        }
+
+        if (varg.data instanceof Character)
+            sd.append((Character) varg.data);
+        else
+            sd.append((CharSequence) varg.data);
+
+        return value;
+    }
+
+    private Value valuesOp(Value value) {
+        if (value.type instanceof SortedDictType) {
+            SortedDictType dictType = (SortedDictType) value.type;
+            List<Value> values = new ArrayList<Value>();
+            for (Value v : ((SortedDictData) value.data).values())
+                values.add(v);
+
+            return new Value(ArrayType.instance(dictType.getValueType()), new ArrayData(values));
+        } else if (value.type instanceof DictType) {
+            DictType dictType = (DictType) value.type;
+            DictData dict = (DictData) value.data;
+            return new Value(ArrayType.instance(dictType.getValueType()), ArrayData.valuesOf(dict));
+        } else {
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                value.type.toString());
+        }
+    }
+
+    private Value keysOp(Value value) {
+        if (value.type instanceof SortedDictType) {
+            SortedDictType dictType = (SortedDictType) value.type;
+            List<Value> keys = new ArrayList<Value>();
+            for (Value k : ((SortedDictData) value.data).keys())
+                keys.add(k);
+
+            return new Value(ArrayType.instance(dictType.getKeyType()), new ArrayData(keys));
+        } else if (value.type instanceof DictType) {
+            DictType dictType = (DictType) value.type;
+            Type keyType = dictType.getKeyType();
+            DictData dict = (DictData) value.data;
+            return new Value(ArrayType.instance(keyType), ArrayData.keysOf(dict));
+        } else {
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                value.type.toString());
+        }
+    }
+
+    private Value emptyOp(Value value) {
+        return new Value(BoolType.instance(), size(value) == 0);
+    }
+
+    private Value countOp(Value value) {
+        return Value.of(size(value));
+    }
+
+    private int size(Value value) {
+        switch (value.type.getCategory()) {
+            case String:
+                return ((CharSequence) value.data).length();
+            case Array:
+                return ((ArrayData) value.data).size();
+            case Dict:
+                return ((DictData) value.data).size();
+            case Range:
+                try {
+                    return ((Range) value.data).count();
+                } catch (ArithmeticException e) {
+                    throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidOperation);
+                }
+            case Matrix:
+                return ((MatrixData) value.data).size();
+            case Set:
+                return ((SetData) value.data).size();
+            case Heap:
+                return ((HeapData) value.data).size();
+            case Deque:
+                return ((DequeData) value.data).size();
+            case SortedDict:
+                return ((SortedDictData) value.data).size();
+            case Cache:
+                return ((CacheData) value.data).size();
+            default:
+                throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                    value.type.toString());
+        }
+    }
+
+    private static int indexOf(CharSequence cs, char c) {
+        if (cs instanceof String)
+            return ((String) cs).indexOf(c);
+
+        for (int i = 0, n = cs.length(); i < n; i++) {
+            if (cs.charAt(i) == c)
+                return i;
+        }
+
+        return -1;
+    }
+
+    @Override
+    public Type getType() {
+        switch (op) {
+            case Count:
+            case Rows:
+            case Cols:
+            case Hits:
+            case Misses:
+            case Evictions:
+                return IntType.instance();
+            case Empty:
+            case Contains:
+            case Insert:
+            case Remove:
+            case StartsWith:
+                return BoolType.instance();
+            case Find:
+                return IntType.instance();
+            case Split:
+                return ArrayType.instance(StringType.instance());
+            case Replace:
+            case Trim:
+            case Join:
+                return StringType.instance();
+            case Keys:
+            case Values:
+                Type type = expr.getType();
+                if (type instanceof SortedDictType) {
+                    SortedDictType sortedType = (SortedDictType) type;
+                    return ArrayType.instance(op == FunctionOp.Keys ?
+                        sortedType.getKeyType() : sortedType.getValueType());
+                }
+
+                if (!(type instanceof DictType))
+                    throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                        type.toString());
+
+                DictType dictType = (DictType) type;
+                return ArrayType.instance(op == FunctionOp.Keys ?
+                    dictType.getKeyType() : dictType.getValueType());
+            case Append:
+            case Sort:
+            case Sorted:
+            case Reverse:
+            case Add:
+            case Scale:
+            case Transpose:
+            case Multiply:
+            case Union:
+            case Intersection:
+            case Difference:
+            case Push:
+            case PushFront:
+            case PushBack:
+            case Write:
+            case Writeln:
+            case Flush:
+            case Close:
+                return expr.getType();
+            case Pop:
+            case Peek:
+            case PopFront:
+            case PopBack:
+            case Front:
+            case Back:
+            case Floor:
+            case Ceiling:
+                return SeqExpr.elementType(super.getLine(), expr.getType());
+            case Get:
+                Type cacheType = expr.getType();
+                if (!(cacheType instanceof CacheType))
+                    throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                        cacheType.toString());
+
+                return ((CacheType) cacheType).getValueType();
+            case Min:
+            case Max:
+            case Sum:
+            case Dot:
+                Type arrayType = expr.getType();
+                if (!(arrayType instanceof ArrayType))
+                    throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                        arrayType.toString());
+
+                return ((ArrayType) arrayType).getInnerType();
+            default:
+                throw new InternalException("Unreachable");
+        }
+    }
+
+    private void checkType(Type type, Value value) {
+        if (!type.match(value.type))
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                value.type.toString());
+    }
+
 }
@@ -0,0 +1,41 @@
+package interpreter.expr;
+
+import interpreter.type.Type;
+import interpreter.type.composed.HeapType;
+import interpreter.value.HeapData;
+import interpreter.value.Value;
+
+public class HeapExpr extends Expr {
+    private HeapType type;
+    private boolean max;
+
+    public HeapExpr(int line, HeapType type, boolean max) {
+        super(line);
+        this.type = type;
+        this.max = max;
+    }
+
+    @Override
+    public Value expr() {
+        HeapData heap;
+        switch (type.getInnerType().getCategory()) {
+            case Int:
+                heap = HeapData.ofInts(max);
+                break;
+            case Float:
+                heap = HeapData.ofFloats(max);
+                break;
+            default:
+                heap = HeapData.ofValues(max);
+                break;
+        }
+
+        return new Value(type, heap);
+    }
+
+    @Override
+    public Type getType() {
+        return type;
+    }
+
+}
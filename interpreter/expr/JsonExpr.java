@@ -0,0 +1,158 @@
+package interpreter.expr;
+
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.util.Iterator;
+
+import error.InternalException;
+import error.LanguageException;
+import interpreter.io.Json;
+import interpreter.io.JsonReader;
+import interpreter.io.MappedFile;
+import interpreter.type.Type;
+import interpreter.type.composed.ArrayType;
+import interpreter.type.composed.SeqType;
+import interpreter.type.primitive.StringType;
+import interpreter.value.ArrayData;
+import interpreter.value.SeqData;
+import interpreter.value.Value;
+
+public class JsonExpr extends Expr {
+
+    public static enum Op {
+        Parse,
+        ToJson,
+        Events
+    }
+
+    private static final Type EVENT = ArrayType.instance(StringType.instance());
+
+    private Op op;
+    private Type type;
+    private Expr arg;
+
+    // type is the declared result of parseJson<T>; null for the others.
+    public JsonExpr(int line, Op op, Type type, Expr arg) {
+        super(line);
+        this.op = op;
+        this.type = type;
+        this.arg = arg;
+    }
+
+    @Override
+    public Value expr() {
+        Value v = arg.expr();
+        switch (op) {
+            case Parse:
+                try {
+                    return Json.parse(text(v), type);
+                } catch (JsonReader.JsonException e) {
+                    throw malformed(e);
+                } catch (Json.MismatchException e) {
+                    throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                        e.path());
+                }
+            case ToJson:
+                try {
+                    return new Value(StringType.instance(), Json.toJson(v));
+                } catch (Json.UnsupportedException e) {
+                    throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                        e.type().toString());
+                } catch (ArithmeticException e) {
+                    throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidOperation);
+                }
+            case Events:
+                return new Value(getType(), new SeqData(events(text(v).toString())));
+            default:
+                throw new InternalException("Unreachable");
+        }
+    }
+
+    // Each event is an array [kind, text]: the kind is startObject,
+    // endObject, startArray, endArray, key, string, number, bool or null,
+    // and the text is the key, string or number as written, or empty.
+    private Iterable<Value> events(final String file) {
+        return () -> {
+            final JsonReader reader;
+            try {
+                reader = new JsonReader(new MappedFile(file).reader());
+            } catch (IOException | InvalidPathException e) {
+                throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidFile, file);
+            }
+
+            return new Iterator<Value>() {
+                private JsonReader.Event next = advance();
+
+                private JsonReader.Event advance() {
+                    try {
+                        return reader.next();
+                    } catch (JsonReader.JsonException e) {
+                        throw malformed(e);
+                    }
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public Value next() {
+                    JsonReader.Event event = next;
+                    CharSequence text;
+                    switch (event) {
+                        case Key:
+                        case String:
+                            text = reader.string();
+                            break;
+                        case Number:
+                            text = reader.number();
+                            break;
+                        case Bool:
+                            text = reader.bool() ? "true" : "false";
+                            break;
+                        default:
+                            text = "";
+                            break;
+                    }
+
+                    String kind = event.name();
+                    Value[] pair = {
+                        new Value(StringType.instance(), Character.toLowerCase(kind.charAt(0)) + kind.substring(1)),
+                        new Value(StringType.instance(), text)
+                    };
+                    next = advance();
+                    return new Value(EVENT, ArrayData.of(pair));
+                }
+            };
+        };
+    }
+
+    private CharSequence text(Value v) {
+        if (!StringType.instance().match(v.type))
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                v.type.toString());
+
+        return (CharSequence) v.data;
+    }
+
+    private LanguageException malformed(JsonReader.JsonException e) {
+        return LanguageException.instance(super.getLine(), LanguageException.Error.InvalidLexeme,
+            String.format("json %d: %s", e.pos, e.getMessage()));
+    }
+
+    @Override
+    public Type getType() {
+        switch (op) {
+            case Parse:
+                return type;
+            case ToJson:
+                return StringType.instance();
+            case Events:
+                return SeqType.instance(EVENT);
+            default:
+                throw new InternalException("Unreachable");
+        }
+    }
+
+}
@@ -0,0 +1,39 @@
+package interpreter.expr;
+
+import interpreter.type.Type;
+import interpreter.value.Value;
+
+// An argument expression of a sequence operation, evaluated once per
+// element with the implicit parameters $0 (and $1) bound directly.
+public class Lambda {
+
+    private Variable[] params;
+    private Expr body;
+
+    public Lambda(Variable[] params, Expr body) {
+        this.params = params;
+        this.body = body;
+    }
+
+    public Type getType() {
+        return body.getType();
+    }
+
+    public int getLine() {
+        return body.getLine();
+    }
+
+    // The parameters hold their arguments like any other variable, since
+    // binding a new argument releases the previous one.
+    public Value apply(Value a) {
+        params[0].bind(a.hold());
+        return body.expr();
+    }
+
+    public Value apply(Value a, Value b) {
+        params[0].bind(a.hold());
+        params[1].bind(b.hold());
+        return body.expr();
+    }
+
+}
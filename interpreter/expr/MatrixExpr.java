@@ -0,0 +1,55 @@
+package interpreter.expr;
+
+import error.LanguageException;
+import interpreter.type.Type;
+import interpreter.type.composed.MatrixType;
+import interpreter.type.primitive.IntType;
+import interpreter.value.MatrixData;
+import interpreter.value.Value;
+
+public class MatrixExpr extends Expr {
+    private MatrixType type;
+    private Expr rows;
+    private Expr cols;
+
+    public MatrixExpr(int line, MatrixType type, Expr rows, Expr cols) {
+        super(line);
+        this.type = type;
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    @Override
+    public Value expr() {
+        int r = dimension(rows.expr());
+        int c = dimension(cols.expr());
+
+        MatrixData data;
+        try {
+            data = IntType.instance().match(type.getInnerType()) ?
+                MatrixData.ofInts(r, c) : MatrixData.ofFloats(r, c);
+        } catch (ArithmeticException e) {
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidOperation);
+        }
+
+        return new Value(type, data);
+    }
+
+    private int dimension(Value value) {
+        if (!IntType.instance().match(value.type))
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                value.type.toString());
+
+        int n = (Integer) value.data;
+        if (n < 0)
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidOperation);
+
+        return n;
+    }
+
+    @Override
+    public Type getType() {
+        return type;
+    }
+
+}
@@ -0,0 +1,49 @@
+package interpreter.expr;
+
+import error.LanguageException;
+import interpreter.type.Type;
+import interpreter.type.composed.RangeType;
+import interpreter.type.primitive.IntType;
+import interpreter.value.Range;
+import interpreter.value.Value;
+
+public class RangeExpr extends Expr {
+
+    private Expr from;
+    private Expr to;
+    private Expr step;
+    private boolean inclusive;
+
+    public RangeExpr(int line, Expr from, Expr to, Expr step, boolean inclusive) {
+        super(line);
+        this.from = from;
+        this.to = to;
+        this.step = step;
+        this.inclusive = inclusive;
+    }
+
+    @Override
+    public Value expr() {
+        int f = intOf(from.expr());
+        int t = intOf(to.expr());
+        int s = step == null ? 1 : intOf(step.expr());
+        if (s == 0)
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidOperation);
+
+        return new Value(RangeType.instance(), new Range(f, t, s, inclusive));
+    }
+
+    private int intOf(Value value) {
+        if (!IntType.instance().match(value.type))
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                value.type.toString());
+
+        return (Integer) value.data;
+    }
+
+    @Override
+    public Type getType() {
+        return RangeType.instance();
+    }
+
+}
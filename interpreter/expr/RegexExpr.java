@@ -0,0 +1,166 @@
+package interpreter.expr;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import error.InternalException;
+import error.LanguageException;
+import interpreter.type.Type;
+import interpreter.type.composed.ArrayType;
+import interpreter.type.primitive.BoolType;
+import interpreter.type.primitive.StringType;
+import interpreter.value.ArrayData;
+import interpreter.value.StringSlice;
+import interpreter.value.Value;
+
+public class RegexExpr extends Expr {
+
+    public static enum Op {
+        Matches,
+        FirstMatch,
+        AllMatches,
+        ReplaceAll
+    }
+
+    // Patterns that are not literals are compiled on first use and kept
+    // in a bounded LRU cache, so a pattern built once per line is not
+    // recompiled for every line.
+    private static final int CACHE_SIZE = Integer.getInteger("msi.regexCache", 256);
+
+    private static final Map<String, Pattern> cache = new LinkedHashMap<String, Pattern>(CACHE_SIZE * 4 / 3 + 1, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Pattern> eldest) {
+            if (size() <= CACHE_SIZE)
+                return false;
+
+            evictions++;
+            return true;
+        }
+    };
+
+    private static long literals;
+    private static long hits;
+    private static long misses;
+    private static long evictions;
+
+    private Op op;
+    private Expr text;
+    private Expr pattern;
+    private Expr replacement;
+
+    // Set when the pattern is a string literal, compiled while parsing.
+    private Pattern compiled;
+
+    public RegexExpr(int line, Op op, Expr text, Expr pattern, Expr replacement) {
+        super(line);
+        this.op = op;
+        this.text = text;
+        this.pattern = pattern;
+        this.replacement = replacement;
+
+        if (pattern instanceof ConstExpr && StringType.instance().match(pattern.getType())) {
+            this.compiled = compile(pattern.expr().data.toString());
+            literals++;
+        }
+    }
+
+    @Override
+    public Value expr() {
+        CharSequence cs = string(text.expr());
+        Matcher m = pattern().matcher(cs);
+        switch (op) {
+            case Matches:
+                return new Value(BoolType.instance(), m.matches());
+            case FirstMatch:
+                // The whole match followed by its groups; empty if none.
+                List<Value> groups = new ArrayList<Value>();
+                if (m.find()) {
+                    for (int g = 0; g <= m.groupCount(); g++)
+                        groups.add(slice(cs, m.start(g), m.end(g)));
+                }
+
+                return new Value(getType(), new ArrayData(groups));
+            case AllMatches:
+                List<Value> found = new ArrayList<Value>();
+                while (m.find())
+                    found.add(slice(cs, m.start(), m.end()));
+
+                return new Value(getType(), new ArrayData(found));
+            case ReplaceAll:
+                String with = string(replacement.expr()).toString();
+                try {
+                    return new Value(StringType.instance(), m.replaceAll(with));
+                } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                    throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidLexeme, with);
+                }
+            default:
+                throw new InternalException("Unreachable");
+        }
+    }
+
+    // Hit rate of the pattern cache, as shown with -Dmsi.stats=true.
+    public static String stats() {
+        long lookups = hits + misses;
+        return String.format("regex: %d literal patterns, cache hits: %d, misses: %d, evictions: %d, hit rate: %.1f%%",
+            literals, hits, misses, evictions, lookups == 0 ? 0.0 : 100.0 * hits / lookups);
+    }
+
+    private Pattern pattern() {
+        if (compiled != null)
+            return compiled;
+
+        String source = string(pattern.expr()).toString();
+        Pattern p = cache.get(source);
+        if (p != null) {
+            hits++;
+            return p;
+        }
+
+        misses++;
+        p = compile(source);
+        cache.put(source, p);
+        return p;
+    }
+
+    private Pattern compile(String source) {
+        try {
+            return Pattern.compile(source);
+        } catch (PatternSyntaxException e) {
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidLexeme, source);
+        }
+    }
+
+    // Unmatched groups come out empty.
+    private static Value slice(CharSequence cs, int from, int to) {
+        return new Value(StringType.instance(), from < 0 ? "" : StringSlice.slice(cs, from, to));
+    }
+
+    private CharSequence string(Value v) {
+        if (!StringType.instance().match(v.type))
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                v.type.toString());
+
+        return (CharSequence) v.data;
+    }
+
+    @Override
+    public Type getType() {
+        switch (op) {
+            case Matches:
+                return BoolType.instance();
+            case FirstMatch:
+            case AllMatches:
+                return ArrayType.instance(StringType.instance());
+            case ReplaceAll:
+                return StringType.instance();
+            default:
+                throw new InternalException("Unreachable");
+        }
+    }
+
+}
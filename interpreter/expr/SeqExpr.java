@@ -0,0 +1,229 @@
+package interpreter.expr;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import error.InternalException;
+import error.LanguageException;
+import interpreter.type.Type;
+import interpreter.type.composed.ArrayType;
+import interpreter.type.composed.DequeType;
+import interpreter.type.composed.HeapType;
+import interpreter.type.composed.RangeType;
+import interpreter.type.composed.SeqType;
+import interpreter.type.composed.SetType;
+import interpreter.type.composed.SortedDictType;
+import interpreter.type.primitive.BoolType;
+import interpreter.type.primitive.CharType;
+import interpreter.type.primitive.FloatType;
+import interpreter.type.primitive.IntType;
+import interpreter.value.ArrayData;
+import interpreter.value.DequeData;
+import interpreter.value.HeapData;
+import interpreter.value.Range;
+import interpreter.value.SeqData;
+import interpreter.value.SetData;
+import interpreter.value.SortedDictData;
+import interpreter.value.Value;
+
+public class SeqExpr extends Expr {
+
+    public static enum SeqOp {
+        Map,
+        Filter,
+        Take,
+        Reduce,
+        Sum,
+        ToArray
+    }
+
+    private SeqOp op;
+    private Expr expr;
+    private Expr arg;
+    private Lambda lambda;
+
+    public SeqExpr(int line, SeqOp op, Expr expr, Expr arg, Lambda lambda) {
+        super(line);
+        this.op = op;
+        this.expr = expr;
+        this.arg = arg;
+        this.lambda = lambda;
+    }
+
+    @Override
+    public Value expr() {
+        Value value = expr.expr();
+        SeqData seq = toSeq(value);
+        switch (op) {
+            case Map:
+                return new Value(getType(), seq.map(v -> lambda.apply(v)));
+            case Filter:
+                return new Value(getType(), seq.filter(v -> (Boolean) lambda.apply(v).data));
+            case Take:
+                return new Value(getType(), seq.take(takeCount()));
+            case Reduce:
+                return reduceOp(seq);
+            case Sum:
+                return sumOp(seq);
+            case ToArray:
+                return toArrayOp(seq);
+            default:
+                throw new InternalException("Unreachable");
+        }
+    }
+
+    private int takeCount() {
+        Value n = arg.expr();
+        if (!IntType.instance().match(n.type))
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                n.type.toString());
+
+        return (Integer) n.data;
+    }
+
+    private Value reduceOp(SeqData seq) {
+        // The accumulator shares the initial value, so the first write
+        // through $0 copies it instead of changing the caller's variable.
+        final Value[] acc = { arg.expr().hold() };
+        seq.forEach(v -> {
+            acc[0] = lambda.apply(acc[0], v);
+            return true;
+        });
+
+        return acc[0];
+    }
+
+    private Value sumOp(SeqData seq) {
+        if (IntType.instance().match(getType())) {
+            final int[] sum = { 0 };
+            seq.forEach(v -> {
+                sum[0] += (Integer) v.data;
+                return true;
+            });
+
+            return Value.of(sum[0]);
+        } else {
+            final float[] sum = { 0.0f };
+            seq.forEach(v -> {
+                sum[0] += (Float) v.data;
+                return true;
+            });
+
+            return new Value(FloatType.instance(), sum[0]);
+        }
+    }
+
+    private Value toArrayOp(SeqData seq) {
+        final List<Value> elements = new ArrayList<Value>();
+        seq.forEach(v -> {
+            elements.add(v);
+            return true;
+        });
+
+        return new Value(getType(), new ArrayData(elements));
+    }
+
+    private SeqData toSeq(Value value) {
+        switch (value.type.getCategory()) {
+            case Seq:
+                return (SeqData) value.data;
+            case Array:
+                return new SeqData((ArrayData) value.data);
+            case Set:
+                return new SeqData((SetData) value.data);
+            case Heap:
+                return new SeqData((HeapData) value.data);
+            case Deque:
+                return new SeqData((DequeData) value.data);
+            case SortedDict:
+                return new SeqData((SortedDictData) value.data);
+            case String:
+                return SeqData.of((CharSequence) value.data);
+            case Range:
+                try {
+                    return SeqData.of((Range) value.data);
+                } catch (ArithmeticException e) {
+                    throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidOperation);
+                }
+            default:
+                throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                    value.type.toString());
+        }
+    }
+
+    @Override
+    public Type getType() {
+        Type elementType = elementType(super.getLine(), expr.getType());
+        switch (op) {
+            case Map:
+                return SeqType.instance(lambda.getType());
+            case Filter:
+            case Take:
+                return SeqType.instance(elementType);
+            case Reduce:
+                return arg.getType();
+            case Sum:
+                return elementType;
+            case ToArray:
+                return ArrayType.instance(elementType);
+            default:
+                throw new InternalException("Unreachable");
+        }
+    }
+
+    // Checked while parsing, so a bad receiver or lambda is reported
+    // before the program runs.
+    public void check() {
+        Type elementType = elementType(super.getLine(), expr.getType());
+        switch (op) {
+            case Filter:
+                checkType(BoolType.instance(), lambda.getType());
+                break;
+            case Take:
+                checkType(IntType.instance(), arg.getType());
+                break;
+            case Reduce:
+                checkType(arg.getType(), lambda.getType());
+                break;
+            case Sum:
+                if (!IntType.instance().match(elementType) && !FloatType.instance().match(elementType))
+                    throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                        elementType.toString());
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void checkType(Type expected, Type type) {
+        if (!expected.match(type))
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                type.toString());
+    }
+
+    // Type of the elements a receiver yields when turned into a sequence.
+    public static Type elementType(int line, Type type) {
+        switch (type.getCategory()) {
+            case Seq:
+                return ((SeqType) type).getInnerType();
+            case Array:
+                return ((ArrayType) type).getInnerType();
+            case Set:
+                return ((SetType) type).getInnerType();
+            case Heap:
+                return ((HeapType) type).getInnerType();
+            case Deque:
+                return ((DequeType) type).getInnerType();
+            case SortedDict:
+                return ((SortedDictType) type).getKeyType();
+            case String:
+                return CharType.instance();
+            case Range:
+                return ((RangeType) type).getInnerType();
+            default:
+                throw LanguageException.instance(line, LanguageException.Error.InvalidType,
+                    type.toString());
+        }
+    }
+
+}
@@ -1,5 +1,6 @@
 package interpreter.expr;
 
+import interpreter.type.Type;
 import interpreter.value.Value;
 
 public abstract class SetExpr extends Expr {
@@ -9,6 +10,18 @@ public abstract class SetExpr extends Expr {
     }
 
     public abstract Value expr();
+    public abstract Type getType();
     public abstract void setValue(Value value);
+
+    // Like expr(), but every container on the path to the value is
+    // unshared first, so the result can be written in place.
+    public abstract Value writable();
+
+    // Stores a value whose contents changed in place, such as a string
+    // moved into a growable buffer. A constant only refuses rebinding, so
+    // unlike setValue this is allowed on it, as writing an element is.
+    public void replaceValue(Value value) {
+        setValue(value);
+    }
     
 }
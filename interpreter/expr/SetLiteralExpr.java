@@ -0,0 +1,55 @@
+package interpreter.expr;
+
+import java.util.List;
+
+import error.LanguageException;
+import interpreter.type.Type;
+import interpreter.type.composed.SetType;
+import interpreter.value.SetData;
+import interpreter.value.Value;
+
+// Set<T>(a, b, ...); named apart from SetExpr, the assignable expressions.
+public class SetLiteralExpr extends Expr {
+    private SetType type;
+    private List<Expr> items;
+
+    public SetLiteralExpr(int line, SetType type, List<Expr> items) {
+        super(line);
+        this.type = type;
+        this.items = items;
+    }
+
+    @Override
+    public Value expr() {
+        Type innerType = type.getInnerType();
+        SetData set = newSet(innerType);
+
+        for (Expr item : items) {
+            Value itemValue = item.expr();
+            if (!innerType.match(itemValue.type))
+                throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                    itemValue.type.toString());
+
+            set.insert(itemValue);
+        }
+
+        return new Value(type, set);
+    }
+
+    public static SetData newSet(Type innerType) {
+        switch (innerType.getCategory()) {
+            case Int:
+                return new SetData(true, false);
+            case Char:
+                return new SetData(true, true);
+            default:
+                return new SetData(false, false);
+        }
+    }
+
+    @Override
+    public Type getType() {
+        return type;
+    }
+
+}
@@ -0,0 +1,46 @@
+package interpreter.expr;
+
+import java.util.List;
+
+import error.LanguageException;
+import interpreter.type.Type;
+import interpreter.type.composed.SortedDictType;
+import interpreter.value.SortedDictData;
+import interpreter.value.Value;
+
+public class SortedDictExpr extends Expr {
+    private SortedDictType type;
+    private List<DictItem> items;
+
+    public SortedDictExpr(int line, SortedDictType type, List<DictItem> items) {
+        super(line);
+        this.type = type;
+        this.items = items;
+    }
+
+    @Override
+    public Value expr() {
+        SortedDictData dict = new SortedDictData();
+        for (DictItem item : items) {
+            Value key = item.getKey().expr();
+            Value value = item.getValue().expr();
+            checkType(type.getKeyType(), key);
+            checkType(type.getValueType(), value);
+            dict.put(key, value);
+        }
+
+        return new Value(type, dict);
+    }
+
+    private void checkType(Type expected, Value value) {
+        if (!expected.match(value.type))
+            throw LanguageException.instance(super.getLine(), LanguageException.Error.InvalidType,
+                value.type.toString());
+    }
+
+    @Override
+    public Type getType() {
+        return this.type;
+    }
+
+}
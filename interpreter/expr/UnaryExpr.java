@@ -1,6 +1,7 @@
 package interpreter.expr;
 
 import error.LanguageException;
+import interpreter.type.Type;
 import interpreter.type.primitive.BoolType;
 import interpreter.value.Value;
 
@@ -61,4 +62,9 @@ public class UnaryExpr extends Expr {
         }
     }
 
+    @Override
+    public Type getType() {
+        return op == Op.Not ? BoolType.instance() : expr.getType();
+    }
+
 }
@@ -48,10 +48,27 @@ public class Variable extends SetExpr {
         return this.value;
     }
 
+    public Value writable() {
+        return this.expr();
+    }
+
     public void setValue(Value value) {
         this.write(value, false);
     }
 
+    public void replaceValue(Value value) {
+        this.write(value, true);
+    }
+
+    // Direct slot write for callers that already checked the value type,
+    // such as the for loop binding its iteration variable.
+    public void bind(Value value) {
+        if (this.value != null)
+            this.value.release();
+
+        this.value = value;
+    }
+
     private void write(Value value, boolean initialize) {
         if (!initialize && this.isConstant())
             throw LanguageException.instance(super.getLine(), ConstantAssignment, name);
@@ -59,7 +76,11 @@ public class Variable extends SetExpr {
         if (!this.type.match(value.type))
             throw LanguageException.instance(super.getLine(), InvalidType, value.type.toString());
 
-        this.value = value;
+        Value held = value.hold();
+        if (this.value != null)
+            this.value.release();
+
+        this.value = held;
     }
 
 }
@@ -0,0 +1,425 @@
+package interpreter.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import interpreter.type.primitive.StringType;
+import interpreter.value.Value;
+
+// Loads selected columns of a CSV file with a header line. The mapped
+// file is cut into parts at line boundaries and the parts are parsed in
+// parallel, straight from the bytes: Int and Float fields go into plain
+// int arrays (floats as their raw bits) and String fields become views
+// over the mapping, so no line or field String is built on the way.
+//
+// Fields are separated by ',' and may be quoted with '"', with "" for a
+// quote inside; a quoted field may not span lines.
+public class Csv {
+
+    public static enum Kind {
+        Int,
+        Float,
+        String
+    }
+
+    // Malformed input; line counts from 1 at the header.
+    public static class CsvException extends RuntimeException {
+        public final long line;
+
+        CsvException(String msg, long line) {
+            super(msg);
+            this.line = line;
+        }
+    }
+
+    // A requested column that is not in the header.
+    public static class MissingColumnException extends RuntimeException {
+        public final String column;
+
+        MissingColumnException(String column) {
+            super(null, null, false, false);
+            this.column = column;
+        }
+    }
+
+    // The loaded columns, in the order they were asked for: bits for Int
+    // and Float, values for String.
+    public static class Columns {
+        public final int rows;
+        public final int[][] bits;
+        public final Value[][] values;
+
+        Columns(int rows, int[][] bits, Value[][] values) {
+            this.rows = rows;
+            this.bits = bits;
+            this.values = values;
+        }
+    }
+
+    private static final int MIN_PART = 1 << 23;
+    private static final int MAX_PART = 1 << 28;
+
+    private static final float[] POW10 = { 1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f };
+
+    private Csv() {
+    }
+
+    public static Columns load(MappedFile file, String[] columns, Kind kind) {
+        long size = file.size();
+        long bodyStart = lineEnd(file, 0);
+        List<String> header;
+        try {
+            header = bodyStart == 0 ? new ArrayList<String>() : header(file.bytes(0, bodyStart));
+        } catch (FieldException e) {
+            throw new CsvException(e.getMessage(), 1);
+        }
+
+        // slots[i] is where field i of a record goes, or -1 to skip it.
+        int[] slots = new int[header.size()];
+        Arrays.fill(slots, -1);
+        for (int c = 0; c < columns.length; c++) {
+            int i = header.indexOf(columns[c]);
+            if (i < 0)
+                throw new MissingColumnException(columns[c]);
+            slots[i] = c;
+        }
+
+        int fields = 0;
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] >= 0)
+                fields = i + 1;
+        }
+
+        long[] bounds = partition(file, bodyStart, size);
+        Part[] parts = new Part[bounds.length - 1];
+        final int needed = fields;
+        IntStream.range(0, parts.length).parallel().forEach(p -> {
+            Part part = new Part(kind, columns.length, slots, needed, bounds[p]);
+            part.parse(file.bytes(bounds[p], bounds[p + 1]));
+            parts[p] = part;
+        });
+
+        int rows = 0;
+        for (Part part : parts) {
+            if (part.error != null)
+                throw new CsvException(part.error, lineOf(file, part.errorPos));
+            rows += part.rows;
+        }
+
+        int[][] bits = kind == Kind.String ? null : new int[columns.length][];
+        Value[][] values = kind == Kind.String ? new Value[columns.length][] : null;
+        for (int c = 0; c < columns.length; c++) {
+            if (kind == Kind.String)
+                values[c] = new Value[rows];
+            else
+                bits[c] = new int[rows];
+
+            int at = 0;
+            for (Part part : parts) {
+                if (kind == Kind.String)
+                    System.arraycopy(part.values[c], 0, values[c], at, part.rows);
+                else
+                    System.arraycopy(part.bits[c], 0, bits[c], at, part.rows);
+                at += part.rows;
+            }
+        }
+
+        return new Columns(rows, bits, values);
+    }
+
+    // Cuts [from, to) into parts that end right after a '\n', so that
+    // every part holds whole records.
+    private static long[] partition(MappedFile file, long from, long to) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        long target = Math.min(MAX_PART, Math.max(MIN_PART, (to - from) / (threads * 4L)));
+
+        List<Long> bounds = new ArrayList<Long>();
+        bounds.add(from);
+        for (long p = from; p < to; ) {
+            p = lineEnd(file, Math.min(to, p + target) - 1);
+            bounds.add(p);
+        }
+
+        long[] a = new long[bounds.size()];
+        for (int i = 0; i < a.length; i++)
+            a[i] = bounds.get(i);
+
+        return a;
+    }
+
+    // The offset just past the first '\n' at or after from, or the size.
+    private static long lineEnd(MappedFile file, long from) {
+        long size = file.size();
+        for (long i = from; i < size; i++) {
+            if (file.byteAt(i) == '\n')
+                return i + 1;
+        }
+
+        return size;
+    }
+
+    private static long lineOf(MappedFile file, long pos) {
+        long line = 1;
+        for (long i = 0; i < pos; i++) {
+            if (file.byteAt(i) == '\n')
+                line++;
+        }
+
+        return line;
+    }
+
+    private static List<String> header(ByteBuffer b) {
+        Part part = new Part(Kind.String, 0, new int[0], 0, 0);
+        List<String> names = new ArrayList<String>();
+        int limit = b.limit();
+        for (int pos = 0; pos < limit; ) {
+            int end = part.field(b, pos);
+            names.add(part.text(b, pos, end).toString());
+            pos = end + 1;
+            if (end >= limit || b.get(end) != ',')
+                break;
+        }
+
+        return names;
+    }
+
+    // The records of one part of the file.
+    private static class Part {
+        private final Kind kind;
+        private final int[] slots;
+        private final int needed;
+        private final long base;
+
+        int rows;
+        int[][] bits;
+        Value[][] values;
+
+        String error;
+        long errorPos;
+
+        Part(Kind kind, int columns, int[] slots, int needed, long base) {
+            this.kind = kind;
+            this.slots = slots;
+            this.needed = needed;
+            this.base = base;
+            if (kind == Kind.String)
+                values = new Value[columns][16];
+            else
+                bits = new int[columns][16];
+        }
+
+        void parse(ByteBuffer b) {
+            int limit = b.limit();
+            int pos = 0;
+            try {
+                while (pos < limit) {
+                    if (b.get(pos) == '\n' || (b.get(pos) == '\r' && pos + 1 < limit && b.get(pos + 1) == '\n')) {
+                        pos += b.get(pos) == '\n' ? 1 : 2;
+                        continue;
+                    }
+
+                    if (rows == capacity())
+                        grow();
+
+                    int field = 0;
+                    while (true) {
+                        int end = field(b, pos);
+                        if (field < slots.length && slots[field] >= 0)
+                            store(b, pos, end, slots[field]);
+
+                        field++;
+                        pos = end + 1;
+                        if (end >= limit || b.get(end) != ',')
+                            break;
+                    }
+
+                    if (field < needed) {
+                        errorPos = base + pos - 1;
+                        error = "campos faltando";
+                        return;
+                    }
+
+                    rows++;
+                }
+            } catch (FieldException e) {
+                errorPos = base + e.pos;
+                error = e.getMessage();
+            }
+        }
+
+        // The end of the field starting at pos: the offset of the ',' or
+        // '\n' after it, or the limit.
+        int field(ByteBuffer b, int pos) {
+            int limit = b.limit();
+            if (pos < limit && b.get(pos) == '"') {
+                for (int i = pos + 1; i < limit; i++) {
+                    byte c = b.get(i);
+                    if (c == '\n')
+                        break;
+
+                    if (c == '"') {
+                        if (i + 1 < limit && b.get(i + 1) == '"') {
+                            i++;
+                            continue;
+                        }
+
+                        int end = i + 1;
+                        if (end < limit && b.get(end) == '\r')
+                            end++;
+                        if (end < limit && b.get(end) != ',' && b.get(end) != '\n')
+                            throw new FieldException("aspas inesperadas", end);
+                        return end;
+                    }
+                }
+
+                throw new FieldException("aspas não terminadas", pos);
+            }
+
+            for (int i = pos; i < limit; i++) {
+                byte c = b.get(i);
+                if (c == ',' || c == '\n')
+                    return i;
+            }
+
+            return limit;
+        }
+
+        // The text of the field in [from, to), without a trailing '\r'
+        // and with its quotes taken off.
+        CharSequence text(ByteBuffer b, int from, int to) {
+            if (to > from && b.get(to - 1) == '\r')
+                to--;
+
+            if (to - from < 2 || b.get(from) != '"')
+                return MappedFile.text(b, from, to);
+
+            from++;
+            to--;
+            for (int i = from; i < to; i++) {
+                if (b.get(i) == '"') {
+                    byte[] a = new byte[to - from];
+                    b.get(from, a);
+                    return new String(a, StandardCharsets.UTF_8).replace("\"\"", "\"");
+                }
+            }
+
+            return MappedFile.text(b, from, to);
+        }
+
+        private void store(ByteBuffer b, int from, int to, int column) {
+            if (kind == Kind.String) {
+                values[column][rows] = new Value(StringType.instance(), text(b, from, to));
+                return;
+            }
+
+            if (to > from && b.get(to - 1) == '\r')
+                to--;
+
+            if (to - from >= 2 && b.get(from) == '"') {
+                from++;
+                to--;
+            }
+
+            if (kind == Kind.Int)
+                bits[column][rows] = parseInt(b, from, to);
+            else
+                bits[column][rows] = Float.floatToRawIntBits(parseFloat(b, from, to));
+        }
+
+        private int parseInt(ByteBuffer b, int from, int to) {
+            int i = from;
+            boolean negative = i < to && b.get(i) == '-';
+            if (negative || (i < to && b.get(i) == '+'))
+                i++;
+
+            if (i == to)
+                throw new FieldException("número inválido", from);
+
+            long n = 0;
+            for (; i < to; i++) {
+                int d = b.get(i) - '0';
+                if (d < 0 || d > 9)
+                    throw new FieldException("número inválido", from);
+
+                n = n * 10 + d;
+                if (n > (long) Integer.MAX_VALUE + 1)
+                    throw new FieldException("número inválido", from);
+            }
+
+            n = negative ? -n : n;
+            if (n > Integer.MAX_VALUE)
+                throw new FieldException("número inválido", from);
+
+            return (int) n;
+        }
+
+        // Plain decimals with a short mantissa are exact as float
+        // arithmetic; anything else goes through Float.parseFloat.
+        private float parseFloat(ByteBuffer b, int from, int to) {
+            int i = from;
+            boolean negative = i < to && b.get(i) == '-';
+            if (negative || (i < to && b.get(i) == '+'))
+                i++;
+
+            int mantissa = 0;
+            int scale = -1;
+            int digits = 0;
+            for (; i < to; i++) {
+                byte c = b.get(i);
+                if (c == '.' && scale < 0) {
+                    scale = 0;
+                } else if (c >= '0' && c <= '9' && mantissa < (1 << 24) / 10) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    digits++;
+                    if (scale >= 0)
+                        scale++;
+                } else {
+                    break;
+                }
+            }
+
+            if (i == to && digits > 0 && scale < POW10.length) {
+                float f = scale > 0 ? mantissa / POW10[scale] : mantissa;
+                return negative ? -f : f;
+            }
+
+            byte[] a = new byte[to - from];
+            b.get(from, a);
+            try {
+                return Float.parseFloat(new String(a, StandardCharsets.ISO_8859_1));
+            } catch (NumberFormatException e) {
+                throw new FieldException("número inválido", from);
+            }
+        }
+
+        private int capacity() {
+            if (kind == Kind.String)
+                return values.length == 0 ? Integer.MAX_VALUE : values[0].length;
+
+            return bits.length == 0 ? Integer.MAX_VALUE : bits[0].length;
+        }
+
+        private void grow() {
+            int n = capacity() * 2;
+            for (int c = 0; kind == Kind.String && c < values.length; c++)
+                values[c] = Arrays.copyOf(values[c], n);
+
+            for (int c = 0; kind != Kind.String && c < bits.length; c++)
+                bits[c] = Arrays.copyOf(bits[c], n);
+        }
+    }
+
+    private static class FieldException extends RuntimeException {
+        final int pos;
+
+        FieldException(String msg, int pos) {
+            super(msg, null, false, false);
+            this.pos = pos;
+        }
+    }
+
+}
@@ -0,0 +1,232 @@
+package interpreter.io;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import interpreter.type.Type;
+import interpreter.value.Value;
+
+// A printf-style format string split once into literal text and argument
+// slots. A slot is '%' [ '-' | '0' ] [ width ] [ '.' precision ] followed
+// by d (Int), f (Float or Int), c (Char) or s (any value, as print shows
+// it); "%%" is a '%'. String literals keep their backslashes, so the
+// format itself understands \n, \t and \\.
+//
+// Rendering appends straight into a caller's StringBuilder: Ints and
+// fixed-precision Floats are written digit by digit and padding is
+// inserted in place, so a line is built without intermediate Strings.
+public class Format {
+
+    // Malformed format string.
+    public static class FormatException extends RuntimeException {
+        FormatException() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final int MAX_PRECISION = 9;
+    private static final long[] POW10 = {
+        1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L
+    };
+
+    private static final char[] SPACES = new char[64];
+    private static final char[] ZEROES = new char[64];
+
+    static {
+        Arrays.fill(SPACES, ' ');
+        Arrays.fill(ZEROES, '0');
+    }
+
+    private static class Slot {
+        char conversion;
+        boolean left;
+        boolean zero;
+        int width;
+        int precision = -1;
+    }
+
+    // literals[i] comes before slots[i]; the last literal ends the line.
+    private final String[] literals;
+    private final Slot[] slots;
+
+    private Format(String[] literals, Slot[] slots) {
+        this.literals = literals;
+        this.slots = slots;
+    }
+
+    public static Format compile(CharSequence format) {
+        List<String> literals = new ArrayList<String>();
+        List<Slot> slots = new ArrayList<Slot>();
+        StringBuilder text = new StringBuilder();
+        int n = format.length();
+        for (int i = 0; i < n; i++) {
+            char c = format.charAt(i);
+            if (c == '\\' && i + 1 < n) {
+                char e = format.charAt(++i);
+                text.append(e == 'n' ? '\n' : e == 't' ? '\t' : e);
+                continue;
+            }
+
+            if (c != '%') {
+                text.append(c);
+                continue;
+            }
+
+            if (++i >= n)
+                throw new FormatException();
+
+            if (format.charAt(i) == '%') {
+                text.append('%');
+                continue;
+            }
+
+            Slot slot = new Slot();
+            if (format.charAt(i) == '-') {
+                slot.left = true;
+                i++;
+            } else if (format.charAt(i) == '0') {
+                slot.zero = true;
+                i++;
+            }
+
+            for (; i < n && Character.isDigit(format.charAt(i)); i++) {
+                if (slot.width > (Integer.MAX_VALUE - 9) / 10)
+                    throw new FormatException();
+                slot.width = slot.width * 10 + (format.charAt(i) - '0');
+            }
+
+            if (i < n && format.charAt(i) == '.') {
+                slot.precision = 0;
+                for (i++; i < n && Character.isDigit(format.charAt(i)); i++)
+                    slot.precision = slot.precision * 10 + (format.charAt(i) - '0');
+            }
+
+            if (i >= n)
+                throw new FormatException();
+
+            slot.conversion = format.charAt(i);
+            switch (slot.conversion) {
+                case 'd':
+                case 'c':
+                case 's':
+                    if (slot.precision >= 0)
+                        throw new FormatException();
+                    break;
+                case 'f':
+                    if (slot.precision > MAX_PRECISION)
+                        throw new FormatException();
+                    break;
+                default:
+                    throw new FormatException();
+            }
+
+            literals.add(text.toString());
+            text.setLength(0);
+            slots.add(slot);
+        }
+
+        literals.add(text.toString());
+        return new Format(literals.toArray(new String[literals.size()]), slots.toArray(new Slot[slots.size()]));
+    }
+
+    public int arguments() {
+        return slots.length;
+    }
+
+    // Whether a value of the given type may fill slot i.
+    public boolean accepts(int i, Type type) {
+        switch (slots[i].conversion) {
+            case 'd':
+                return type.getCategory() == Type.Category.Int;
+            case 'f':
+                return type.getCategory() == Type.Category.Float || type.getCategory() == Type.Category.Int;
+            case 'c':
+                return type.getCategory() == Type.Category.Char;
+            default:
+                return true;
+        }
+    }
+
+    // Appends the formatted text; args must fit the slots.
+    public void render(StringBuilder sb, Value[] args) {
+        for (int i = 0; i < slots.length; i++) {
+            sb.append(literals[i]);
+
+            Slot slot = slots[i];
+            int start = sb.length();
+            Object data = args[i].data;
+            switch (slot.conversion) {
+                case 'd':
+                    sb.append((int) (Integer) data);
+                    break;
+                case 'f':
+                    float f = data instanceof Integer ? (float) (int) (Integer) data : (Float) data;
+                    if (slot.precision < 0)
+                        sb.append(f);
+                    else
+                        fixed(sb, f, slot.precision);
+                    break;
+                case 'c':
+                    sb.append((char) (Character) data);
+                    break;
+                default:
+                    if (data instanceof CharSequence)
+                        sb.append((CharSequence) data);
+                    else
+                        sb.append(data);
+                    break;
+            }
+
+            pad(sb, start, slot);
+        }
+
+        sb.append(literals[slots.length]);
+    }
+
+    // Rounds half up on the float's value widened to double, as
+    // String.format does, and keeps the sign of a negative value that
+    // rounds to zero ("-0.00"). Values of 1e9 and over, NaN and the
+    // infinities are left to String.format itself.
+    private static void fixed(StringBuilder sb, float f, int precision) {
+        double d = Math.abs((double) f);
+        if (Float.isNaN(f) || Float.isInfinite(f) || d >= 1e9) {
+            sb.append(String.format("%." + precision + "f", f));
+            return;
+        }
+
+        long scaled = Math.round(d * POW10[precision]);
+        if (Float.floatToRawIntBits(f) < 0)
+            sb.append('-');
+
+        sb.append(scaled / POW10[precision]);
+        if (precision == 0)
+            return;
+
+        sb.append('.');
+        long fraction = scaled % POW10[precision];
+        for (long p = POW10[precision - 1]; p > fraction && p > 1; p /= 10)
+            sb.append('0');
+        sb.append(fraction);
+    }
+
+    private static void pad(StringBuilder sb, int start, Slot slot) {
+        int missing = slot.width - (sb.length() - start);
+        if (missing <= 0)
+            return;
+
+        char[] fill = SPACES;
+        if (slot.left) {
+            start = sb.length();
+        } else if (slot.zero && slot.conversion != 's' && slot.conversion != 'c') {
+            fill = ZEROES;
+            if (sb.charAt(start) == '-')
+                start++;
+        }
+
+        // Wider padding goes in SPACES.length chars at a time.
+        for (; missing > 0; missing -= fill.length)
+            sb.insert(start, fill, 0, Math.min(missing, fill.length));
+    }
+
+}
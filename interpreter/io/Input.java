@@ -0,0 +1,231 @@
+package interpreter.io;
+
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Line reader for the interpreter's input. The channel is read in large
+// chunks that are decoded from UTF-8 in bulk, and lines are cut at '\n'
+// (dropping a trailing '\r') by a plain scan of the decoded characters.
+//
+// When prefetching, a daemon thread runs the reader ahead of the script
+// and hands the lines over in batches through a bounded queue, so that
+// decoding overlaps with interpretation. A batch is handed over when it
+// is full or when the thread is about to block on the channel, so slow
+// producers are not held back.
+public class Input {
+
+    private static final int BYTES = 1 << 16;
+    private static final int BATCH = 1024;
+    private static final int BATCHES = 64;
+
+    private static final String[] END = new String[0];
+
+    // Piped input is prefetched unless -Dmsi.prefetch=false.
+    private static final Input stdin = new Input(
+        new FileInputStream(FileDescriptor.in).getChannel(),
+        System.console() == null && !"false".equals(System.getProperty("msi.prefetch")));
+
+    private final ReadableByteChannel channel;
+    private final CharsetDecoder decoder;
+    private final ByteBuffer bytes;
+    private final CharBuffer chars;
+    private final StringBuilder partial;
+    private boolean eof;
+
+    private final boolean prefetch;
+    private BlockingQueue<String[]> queue;
+    private String[] batch;
+    private int next;
+    private IOException error;
+
+    // Lines being collected by the prefetch thread.
+    private String[] pending;
+    private int npending;
+
+    public Input(ReadableByteChannel channel, boolean prefetch) {
+        this.channel = channel;
+        this.prefetch = prefetch;
+        this.decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.bytes = ByteBuffer.allocate(BYTES);
+        this.chars = CharBuffer.allocate(BYTES);
+        this.chars.flip();
+        this.partial = new StringBuilder();
+    }
+
+    public static Input stdin() {
+        return stdin;
+    }
+
+    // The next line without its terminator, or null at the end of input.
+    public String readLine() {
+        if (!prefetch)
+            return nextLine();
+
+        if (queue == null)
+            startPrefetch();
+
+        if (batch == END)
+            return null;
+
+        if (next == batch.length) {
+            batch = take();
+            next = 0;
+            if (batch == END) {
+                if (error != null)
+                    throw new UncheckedIOException(error);
+
+                return null;
+            }
+        }
+
+        String line = batch[next];
+        batch[next++] = null;
+        return line;
+    }
+
+    public List<String> readAll() {
+        List<String> lines = new ArrayList<String>();
+        for (String line = readLine(); line != null; line = readLine())
+            lines.add(line);
+
+        return lines;
+    }
+
+    private String[] take() {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return END;
+        }
+    }
+
+    private void startPrefetch() {
+        queue = new ArrayBlockingQueue<String[]>(BATCHES);
+        batch = new String[0];
+        pending = new String[BATCH];
+
+        Thread thread = new Thread(() -> {
+            try {
+                try {
+                    for (String line = nextLine(); line != null; line = nextLine()) {
+                        pending[npending++] = line;
+                        if (npending == BATCH)
+                            publish();
+                    }
+                } catch (UncheckedIOException e) {
+                    error = e.getCause();
+                }
+
+                publish();
+                queue.put(END);
+            } catch (InterruptedException e) {
+                // The interpreter is gone; nobody is waiting.
+            }
+        }, "msi-input");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void publish() throws InterruptedException {
+        if (npending == 0)
+            return;
+
+        queue.put(npending == BATCH ? pending : Arrays.copyOf(pending, npending));
+        pending = new String[BATCH];
+        npending = 0;
+    }
+
+    private String nextLine() {
+        while (true) {
+            char[] a = chars.array();
+            int from = chars.position();
+            int limit = chars.limit();
+            for (int i = from; i < limit; i++) {
+                if (a[i] == '\n') {
+                    chars.position(i + 1);
+                    return line(a, from, i);
+                }
+            }
+
+            partial.append(a, from, limit - from);
+            chars.position(limit);
+            if (!fill()) {
+                if (partial.length() == 0)
+                    return null;
+
+                return line(a, 0, 0);
+            }
+        }
+    }
+
+    // Joins a line started in an earlier chunk with its end in a[from, to).
+    private String line(char[] a, int from, int to) {
+        String line;
+        if (partial.length() == 0) {
+            if (to > from && a[to - 1] == '\r')
+                to--;
+            line = new String(a, from, to - from);
+        } else {
+            partial.append(a, from, to - from);
+            int n = partial.length();
+            if (partial.charAt(n - 1) == '\r')
+                n--;
+            line = partial.substring(0, n);
+            partial.setLength(0);
+        }
+
+        return line;
+    }
+
+    // Decodes the next chunk; false once the input is exhausted.
+    private boolean fill() {
+        if (eof)
+            return false;
+
+        if (pending != null && npending > 0) {
+            try {
+                publish();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        chars.clear();
+        try {
+            while (chars.position() == 0) {
+                int n = channel.read(bytes);
+                bytes.flip();
+                decoder.decode(bytes, chars, n < 0);
+                bytes.compact();
+                if (n < 0) {
+                    decoder.flush(chars);
+                    eof = true;
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            chars.flip();
+        }
+
+        return chars.hasRemaining();
+    }
+
+}
@@ -0,0 +1,309 @@
+package interpreter.io;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import interpreter.type.Type;
+import interpreter.type.composed.ArrayType;
+import interpreter.type.composed.DictType;
+import interpreter.type.primitive.BoolType;
+import interpreter.type.primitive.FloatType;
+import interpreter.type.primitive.StringType;
+import interpreter.value.ArrayData;
+import interpreter.value.DictData;
+import interpreter.value.MatrixData;
+import interpreter.value.Range;
+import interpreter.value.SeqData;
+import interpreter.value.SharedData;
+import interpreter.value.SortedDictData;
+import interpreter.value.Value;
+
+// Conversion between JSON text and native values. Parsing is driven by
+// the declared type: every JSON value is checked against the type
+// expected at its position as it is read, so a document is turned into
+// Dict/Array/String/Int/Float/Bool values in one pass with no untyped
+// intermediate tree.
+public class Json {
+
+    // The document does not fit the declared type. The path to the
+    // offending value, e.g. $.items[3].price, is put together as the
+    // exception unwinds, so reading builds no paths while it succeeds.
+    public static class MismatchException extends RuntimeException {
+        private String path = "";
+
+        MismatchException() {
+            super(null, null, false, false);
+        }
+
+        MismatchException within(String segment) {
+            path = segment + path;
+            return this;
+        }
+
+        public String path() {
+            return path;
+        }
+    }
+
+    private Json() {
+    }
+
+    // Types a JSON document can be read into.
+    public static boolean readable(Type type) {
+        switch (type.getCategory()) {
+            case Bool:
+            case Int:
+            case Float:
+            case String:
+                return true;
+            case Array:
+                return readable(((ArrayType) type).getInnerType());
+            case Dict:
+                DictType dict = (DictType) type;
+                Type key = dict.getKeyType();
+                return (StringType.instance().match(key) || key.getCategory() == Type.Category.Int) &&
+                    readable(dict.getValueType());
+            default:
+                return false;
+        }
+    }
+
+    public static Value parse(CharSequence text, Type type) {
+        JsonReader reader = new JsonReader(text);
+        Value v;
+        try {
+            v = read(reader, reader.next(), type);
+        } catch (MismatchException e) {
+            throw e.within("$");
+        }
+
+        if (reader.next() != null)
+            throw new JsonReader.JsonException("fim esperado", reader.position());
+
+        return v;
+    }
+
+    private static Value read(JsonReader reader, JsonReader.Event event, Type type) {
+        if (event == null)
+            throw new JsonReader.JsonException("fim inesperado", reader.position());
+
+        switch (type.getCategory()) {
+            case Bool:
+                if (event != JsonReader.Event.Bool)
+                    throw new MismatchException();
+
+                return new Value(BoolType.instance(), reader.bool());
+            case Int:
+                if (event != JsonReader.Event.Number || !reader.isIntegral())
+                    throw new MismatchException();
+
+                return Value.of(reader.intValue());
+            case Float:
+                if (event != JsonReader.Event.Number)
+                    throw new MismatchException();
+
+                return new Value(FloatType.instance(), reader.floatValue());
+            case String:
+                if (event != JsonReader.Event.String)
+                    throw new MismatchException();
+
+                return new Value(StringType.instance(), reader.string());
+            case Array:
+                if (event != JsonReader.Event.StartArray)
+                    throw new MismatchException();
+
+                Type inner = ((ArrayType) type).getInnerType();
+                List<Value> elements = new ArrayList<Value>();
+                for (JsonReader.Event e = reader.next(); e != JsonReader.Event.EndArray; e = reader.next()) {
+                    try {
+                        elements.add(read(reader, e, inner));
+                    } catch (MismatchException ex) {
+                        throw ex.within("[" + elements.size() + "]");
+                    }
+                }
+
+                return new Value(type, new ArrayData(elements));
+            case Dict:
+                if (event != JsonReader.Event.StartObject)
+                    throw new MismatchException();
+
+                DictType dictType = (DictType) type;
+                boolean intKeys = dictType.getKeyType().getCategory() == Type.Category.Int;
+                DictData dict = new DictData();
+                for (JsonReader.Event e = reader.next(); e != JsonReader.Event.EndObject; e = reader.next()) {
+                    String name = reader.string();
+                    try {
+                        Value key;
+                        if (!intKeys)
+                            key = new Value(StringType.instance(), name);
+                        else if (isInt(name))
+                            key = Value.of(Integer.parseInt(name));
+                        else
+                            throw new MismatchException();
+
+                        dict.put(key, read(reader, reader.next(), dictType.getValueType()));
+                    } catch (MismatchException ex) {
+                        throw ex.within("." + name);
+                    }
+                }
+
+                return new Value(type, dict);
+            default:
+                throw new MismatchException();
+        }
+    }
+
+    private static boolean isInt(String s) {
+        try {
+            Integer.parseInt(s);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    // A value with no JSON form, such as a cache or a writer.
+    public static class UnsupportedException extends RuntimeException {
+        private final Type type;
+
+        UnsupportedException(Type type) {
+            super(null, null, false, false);
+            this.type = type;
+        }
+
+        public Type type() {
+            return type;
+        }
+    }
+
+    public static String toJson(Value value) {
+        StringBuilder sb = new StringBuilder();
+        write(sb, value);
+        return sb.toString();
+    }
+
+    // Dicts are written as objects; arrays, sets, heaps, deques, ranges,
+    // seqs and matrices (as arrays of rows) as arrays. Any other value
+    // raises UnsupportedException.
+    private static void write(StringBuilder sb, Value value) {
+        Object data = value.data;
+        if (data instanceof CharSequence || data instanceof Character) {
+            quote(sb, data.toString());
+        } else if (data instanceof Float) {
+            float f = (Float) data;
+            if (Float.isNaN(f) || Float.isInfinite(f))
+                sb.append("null");
+            else
+                sb.append(f);
+        } else if (data instanceof DictData) {
+            writeObject(sb, ((DictData) data).entries());
+        } else if (data instanceof SortedDictData) {
+            writeObject(sb, ((SortedDictData) data).entries());
+        } else if (data instanceof Iterable && data instanceof SharedData) {
+            writeArray(sb, ((Iterable<?>) data).iterator());
+        } else if (data instanceof Range) {
+            Range range = (Range) data;
+            sb.append('[');
+            for (int i = 0, n = range.count(); i < n; i++) {
+                if (i > 0)
+                    sb.append(',');
+                sb.append(range.get(i));
+            }
+            sb.append(']');
+        } else if (data instanceof SeqData) {
+            final boolean[] first = { true };
+            sb.append('[');
+            ((SeqData) data).forEach(v -> {
+                if (!first[0])
+                    sb.append(',');
+                write(sb, v);
+                first[0] = false;
+                return true;
+            });
+            sb.append(']');
+        } else if (data instanceof MatrixData) {
+            MatrixData m = (MatrixData) data;
+            sb.append('[');
+            for (int i = 0; i < m.rows(); i++) {
+                if (i > 0)
+                    sb.append(',');
+                sb.append('[');
+                for (int j = 0; j < m.cols(); j++) {
+                    if (j > 0)
+                        sb.append(',');
+                    write(sb, m.get(i, j));
+                }
+                sb.append(']');
+            }
+            sb.append(']');
+        } else if (data instanceof Integer || data instanceof Boolean) {
+            sb.append(data);
+        } else {
+            throw new UnsupportedException(value.type);
+        }
+    }
+
+    private static void writeArray(StringBuilder sb, Iterator<?> it) {
+        sb.append('[');
+        try {
+            for (boolean first = true; it.hasNext(); first = false) {
+                if (!first)
+                    sb.append(',');
+                write(sb, (Value) it.next());
+            }
+        } finally {
+            // Stopping on an unsupported element must still unpin the storage.
+            if (it instanceof SharedData.Cursor)
+                ((SharedData.Cursor) it).close();
+        }
+        sb.append(']');
+    }
+
+    private static void writeObject(StringBuilder sb, Iterable<Map.Entry<Value, Value>> entries) {
+        sb.append('{');
+        boolean first = true;
+        for (Map.Entry<Value, Value> e : entries) {
+            if (!first)
+                sb.append(',');
+            quote(sb, e.getKey().data.toString());
+            sb.append(':');
+            write(sb, e.getValue());
+            first = false;
+        }
+        sb.append('}');
+    }
+
+    private static void quote(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20)
+                        sb.append(String.format("\\u%04x", (int) c));
+                    else
+                        sb.append(c);
+                    break;
+            }
+        }
+        sb.append('"');
+    }
+
+}
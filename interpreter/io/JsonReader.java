@@ -0,0 +1,448 @@
+package interpreter.io;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+// Pull parser for JSON text. Each call to next() scans just far enough to
+// return one event, in a single pass over the characters. Text read from
+// a Reader is kept in a buffer that is refilled as the scan reaches its
+// end, dropping what came before the current token, so a large document
+// is never held whole. Object keys
+// without escapes are looked up in a small table first, so a key that
+// was seen before comes back as the same String without building a new
+// one.
+public class JsonReader {
+
+    public static enum Event {
+        StartObject,
+        EndObject,
+        StartArray,
+        EndArray,
+        Key,
+        String,
+        Number,
+        Bool,
+        Null
+    }
+
+    // Malformed input; pos is the offset where it was noticed.
+    public static class JsonException extends RuntimeException {
+        public final long pos;
+
+        JsonException(String msg, long pos) {
+            super(msg);
+            this.pos = pos;
+        }
+    }
+
+    // What the innermost open container expects next.
+    private static final byte OBJECT_FIRST = 0;  // a key or '}'
+    private static final byte OBJECT_NEXT = 1;   // ',' or '}'
+    private static final byte OBJECT_COLON = 2;  // ':' and a value
+    private static final byte ARRAY_FIRST = 3;   // a value or ']'
+    private static final byte ARRAY_NEXT = 4;    // ',' or ']'
+
+    private static final int KEYS = 1024;
+    private static final int BUFFER = 1 << 16;
+
+    private CharSequence text;
+    private int length;
+    private int pos;
+
+    // Set when reading from a Reader: offset is the position of buf[0]
+    // in the whole text, and mark is where the current token starts.
+    private Reader source;
+    private char[] buf;
+    private long offset;
+    private int mark;
+
+    private byte[] stack = new byte[16];
+    private int depth;
+    private boolean started;
+
+    private final String[] keys = new String[KEYS];
+    private final StringBuilder sb = new StringBuilder();
+
+    // The current event's payload.
+    private String string;
+    private boolean bool;
+    private boolean integral;
+    private int start;
+    private int end;
+
+    public JsonReader(CharSequence text) {
+        this.text = text;
+        this.length = text.length();
+    }
+
+    public JsonReader(Reader source) {
+        this.source = source;
+        this.buf = new char[BUFFER];
+        this.text = CharBuffer.wrap(buf);
+    }
+
+    // The next event, or null after the top-level value is complete.
+    public Event next() {
+        mark = pos;
+        skipSpace();
+        if (depth == 0) {
+            if (started) {
+                if (more())
+                    throw error("fim esperado");
+                return null;
+            }
+
+            started = true;
+            return value();
+        }
+
+        byte state = stack[depth - 1];
+        char c = peek();
+        switch (state) {
+            case OBJECT_FIRST:
+            case OBJECT_NEXT:
+                if (c == '}') {
+                    pos++;
+                    depth--;
+                    return Event.EndObject;
+                }
+
+                if (state == OBJECT_NEXT) {
+                    expect(',');
+                    skipSpace();
+                }
+
+                if (peek() != '"')
+                    throw error("chave esperada");
+
+                string = key();
+                stack[depth - 1] = OBJECT_COLON;
+                return Event.Key;
+            case OBJECT_COLON:
+                expect(':');
+                skipSpace();
+                stack[depth - 1] = OBJECT_NEXT;
+                return value();
+            default:
+                if (c == ']') {
+                    pos++;
+                    depth--;
+                    return Event.EndArray;
+                }
+
+                if (state == ARRAY_NEXT) {
+                    expect(',');
+                    skipSpace();
+                }
+
+                stack[depth - 1] = ARRAY_NEXT;
+                return value();
+        }
+    }
+
+    // Text of the last Key or String event.
+    public String string() {
+        return string;
+    }
+
+    public boolean bool() {
+        return bool;
+    }
+
+    // Whether the last Number had no fraction or exponent.
+    public boolean isIntegral() {
+        return integral;
+    }
+
+    public int intValue() {
+        try {
+            return Integer.parseInt(text, start, end, 10);
+        } catch (NumberFormatException e) {
+            throw error("número inválido");
+        }
+    }
+
+    public float floatValue() {
+        return Float.parseFloat(text.subSequence(start, end).toString());
+    }
+
+    // The raw text of the last Number; a copy when the buffer is reused.
+    public CharSequence number() {
+        CharSequence cs = text.subSequence(start, end);
+        return source != null ? cs.toString() : cs;
+    }
+
+    public long position() {
+        return offset + pos;
+    }
+
+    // Skips the rest of the value whose Start event was just returned.
+    public void skipValue() {
+        int target = depth - 1;
+        while (depth > target)
+            next();
+    }
+
+    private Event value() {
+        char c = peek();
+        switch (c) {
+            case '{':
+                pos++;
+                push(OBJECT_FIRST);
+                return Event.StartObject;
+            case '[':
+                pos++;
+                push(ARRAY_FIRST);
+                return Event.StartArray;
+            case '"':
+                string = readString();
+                return Event.String;
+            case 't':
+                literal("true");
+                bool = true;
+                return Event.Bool;
+            case 'f':
+                literal("false");
+                bool = false;
+                return Event.Bool;
+            case 'n':
+                literal("null");
+                return Event.Null;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9'))
+                    return number(c);
+
+                throw error("valor esperado");
+        }
+    }
+
+    private Event number(char c) {
+        mark = pos;
+        integral = true;
+        if (c == '-')
+            pos++;
+
+        digits();
+        if (more() && text.charAt(pos) == '.') {
+            integral = false;
+            pos++;
+            digits();
+        }
+
+        if (more() && (text.charAt(pos) == 'e' || text.charAt(pos) == 'E')) {
+            integral = false;
+            pos++;
+            if (more() && (text.charAt(pos) == '+' || text.charAt(pos) == '-'))
+                pos++;
+            digits();
+        }
+
+        start = mark;
+        end = pos;
+        return Event.Number;
+    }
+
+    private void digits() {
+        int n = 0;
+        for (; more() && text.charAt(pos) >= '0' && text.charAt(pos) <= '9'; n++)
+            pos++;
+
+        if (n == 0)
+            throw error("dígito esperado");
+    }
+
+    // A key without escapes is hashed while it is scanned and reused from
+    // the table when the same characters were seen before.
+    private String key() {
+        mark = ++pos;
+        int h = 0;
+        for (; more(); pos++) {
+            char c = text.charAt(pos);
+            if (c == '"') {
+                int slot = (h ^ (h >>> 16)) & (KEYS - 1);
+                String k = keys[slot];
+                if (k == null || !sameAs(k, mark, pos)) {
+                    k = text.subSequence(mark, pos).toString();
+                    keys[slot] = k;
+                }
+
+                pos++;
+                return k;
+            }
+
+            if (c == '\\') {
+                pos = mark - 1;
+                return readString();
+            }
+
+            h = 31 * h + c;
+        }
+
+        throw error("string não terminada");
+    }
+
+    private boolean sameAs(String k, int from, int to) {
+        if (k.length() != to - from)
+            return false;
+
+        for (int i = 0; i < k.length(); i++) {
+            if (k.charAt(i) != text.charAt(from + i))
+                return false;
+        }
+
+        return true;
+    }
+
+    private String readString() {
+        mark = ++pos;
+        for (; more(); pos++) {
+            char c = text.charAt(pos);
+            if (c == '"') {
+                pos++;
+                return text.subSequence(mark, pos - 1).toString();
+            }
+
+            if (c == '\\')
+                break;
+        }
+
+        sb.setLength(0);
+        sb.append(text, mark, pos);
+        mark = pos;
+        while (more()) {
+            char c = text.charAt(pos++);
+            if (c == '"')
+                return sb.toString();
+
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+
+            if (!more())
+                break;
+
+            char e = text.charAt(pos++);
+            switch (e) {
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'u':
+                    mark = pos;
+                    while (pos + 4 > length) {
+                        if (!fill())
+                            throw error("escape inválido");
+                    }
+
+                    try {
+                        sb.append((char) Integer.parseInt(text, pos, pos + 4, 16));
+                    } catch (NumberFormatException ex) {
+                        throw error("escape inválido");
+                    }
+                    pos += 4;
+                    break;
+                default:
+                    sb.append(e);
+                    break;
+            }
+        }
+
+        throw error("string não terminada");
+    }
+
+    private void literal(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (!more() || text.charAt(pos) != word.charAt(i))
+                throw error("valor esperado");
+            pos++;
+        }
+    }
+
+    private void push(byte state) {
+        if (depth == stack.length)
+            stack = Arrays.copyOf(stack, depth * 2);
+
+        stack[depth++] = state;
+    }
+
+    private char peek() {
+        if (!more())
+            throw error("fim inesperado");
+
+        return text.charAt(pos);
+    }
+
+    private void expect(char c) {
+        if (peek() != c)
+            throw error("'" + c + "' esperado");
+
+        pos++;
+    }
+
+    private void skipSpace() {
+        while (more()) {
+            char c = text.charAt(pos);
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t')
+                break;
+            pos++;
+        }
+    }
+
+    // Whether there is a char at pos, refilling the buffer if needed.
+    private boolean more() {
+        return pos < length || fill();
+    }
+
+    // Reads more text into the buffer, first moving the current token to
+    // its front; false at the end of the text.
+    private boolean fill() {
+        if (source == null)
+            return false;
+
+        if (mark > 0) {
+            System.arraycopy(buf, mark, buf, 0, length - mark);
+            length -= mark;
+            pos -= mark;
+            offset += mark;
+            mark = 0;
+        }
+
+        if (length == buf.length) {
+            buf = Arrays.copyOf(buf, length * 2);
+            text = CharBuffer.wrap(buf);
+        }
+
+        int n;
+        try {
+            n = source.read(buf, length, buf.length - length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (n <= 0)
+            return false;
+
+        length += n;
+        return true;
+    }
+
+    private JsonException error(String msg) {
+        return new JsonException(msg, position());
+    }
+
+}
@@ -0,0 +1,224 @@
+package interpreter.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import interpreter.value.AsciiText;
+
+// A file mapped read-only into memory with FileChannel.map, in windows of
+// at most CHUNK bytes so that files over 2 GB can be mapped too. Lines
+// made only of ASCII bytes come out as AsciiText views over the mapping,
+// without being decoded or copied; other lines are decoded from UTF-8.
+public class MappedFile {
+
+    private static final int CHUNK = 1 << 30;
+
+    private final MappedByteBuffer[] chunks;
+    private final long size;
+
+    public MappedFile(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.READ)) {
+            size = channel.size();
+            int n = (int) ((size + CHUNK - 1) / CHUNK);
+            chunks = new MappedByteBuffer[n];
+            for (int i = 0; i < n; i++) {
+                long from = (long) i * CHUNK;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(CHUNK, size - from));
+            }
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public int byteAt(long i) {
+        return chunks[(int) (i / CHUNK)].get((int) (i % CHUNK)) & 0xff;
+    }
+
+    // The bytes in [from, to) as one buffer: a view of the mapping, or a
+    // copy for a range that straddles two windows.
+    public ByteBuffer bytes(long from, long to) {
+        int n = (int) (to - from);
+        int chunk = (int) (from / CHUNK);
+        int pos = (int) (from % CHUNK);
+        if (pos + (long) n <= chunks[chunk].limit())
+            return chunks[chunk].slice(pos, n);
+
+        ByteBuffer copy = ByteBuffer.allocate(n);
+        while (copy.hasRemaining()) {
+            int len = Math.min(copy.remaining(), chunks[chunk].limit() - pos);
+            copy.put(chunks[chunk].slice(pos, len));
+            chunk++;
+            pos = 0;
+        }
+
+        return copy.flip();
+    }
+
+    // The whole file as text.
+    public CharSequence text() {
+        if (chunks.length == 0)
+            return "";
+
+        if (chunks.length == 1)
+            return text(chunks[0], 0, (int) size);
+
+        WindowReader reader = new WindowReader();
+        StringBuilder sb = new StringBuilder();
+        char[] buf = new char[1 << 16];
+        for (int n; (n = reader.read(buf, 0, buf.length)) > 0; )
+            sb.append(buf, 0, n);
+
+        return sb.toString();
+    }
+
+    // The file decoded from UTF-8 a piece at a time, for readers that
+    // scan it once without holding all of its text.
+    public Reader reader() {
+        return new WindowReader();
+    }
+
+    // One decoder runs across the windows: a sequence cut by a window's
+    // end is kept in carry and completed a byte at a time from the next.
+    private class WindowReader extends Reader {
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final CharBuffer pending = CharBuffer.allocate(1 << 13).flip();
+        private final ByteBuffer carry = ByteBuffer.allocate(4);
+        private ByteBuffer in = ByteBuffer.allocate(0);
+        private int chunk = -1;
+        private boolean done;
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (len == 0)
+                return 0;
+
+            if (!pending.hasRemaining() && !fill())
+                return -1;
+
+            int n = Math.min(len, pending.remaining());
+            pending.get(cbuf, off, n);
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private boolean fill() {
+            pending.clear();
+            while (pending.position() == 0 && !done)
+                step();
+
+            pending.flip();
+            return pending.hasRemaining();
+        }
+
+        private void step() {
+            if (carry.position() > 0 && in.hasRemaining()) {
+                carry.put(in.get()).flip();
+                decoder.decode(carry, pending, false);
+                carry.compact();
+            } else if (in.hasRemaining()) {
+                if (decoder.decode(in, pending, false).isUnderflow())
+                    carry.put(in);
+            } else if (++chunk < chunks.length) {
+                in = chunks[chunk].duplicate();
+            } else {
+                carry.flip();
+                decoder.decode(carry, pending, true);
+                decoder.flush(pending);
+                done = true;
+            }
+        }
+    }
+
+    // Lines without their '\n' or "\r\n", read on demand.
+    public Iterator<CharSequence> lines() {
+        return new Iterator<CharSequence>() {
+            private int chunk = 0;
+            private int pos = 0;
+
+            @Override
+            public boolean hasNext() {
+                while (chunk < chunks.length && pos == chunks[chunk].limit()) {
+                    chunk++;
+                    pos = 0;
+                }
+
+                return chunk < chunks.length;
+            }
+
+            @Override
+            public CharSequence next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                ByteBuffer b = chunks[chunk];
+                int limit = b.limit();
+                for (int i = pos; i < limit; i++) {
+                    if (b.get(i) == '\n') {
+                        CharSequence line = text(b, pos, i > pos && b.get(i - 1) == '\r' ? i - 1 : i);
+                        pos = i + 1;
+                        return line;
+                    }
+                }
+
+                return spanning();
+            }
+
+            // A line that runs into the next window is copied out.
+            private CharSequence spanning() {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                while (chunk < chunks.length) {
+                    ByteBuffer b = chunks[chunk];
+                    for (int limit = b.limit(); pos < limit; pos++) {
+                        byte c = b.get(pos);
+                        if (c == '\n') {
+                            pos++;
+                            return decode(out.toByteArray());
+                        }
+                        out.write(c);
+                    }
+                    chunk++;
+                    pos = 0;
+                }
+
+                return decode(out.toByteArray());
+            }
+        };
+    }
+
+    private static CharSequence decode(byte[] a) {
+        int n = a.length;
+        if (n > 0 && a[n - 1] == '\r')
+            n--;
+
+        return new String(a, 0, n, StandardCharsets.UTF_8);
+    }
+
+    static CharSequence text(ByteBuffer b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (b.get(i) < 0)
+                return StandardCharsets.UTF_8.decode(b.slice(from, to - from)).toString();
+        }
+
+        return new AsciiText(b, from, to);
+    }
+
+}
@@ -0,0 +1,309 @@
+package interpreter.io;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Buffered text sink for everything the interpreter prints. Characters are
+// collected in a CharBuffer, encoded to UTF-8 in bulk into a reusable
+// ByteBuffer and written to the channel only when that fills up, so a
+// print costs no lock and no system call. An interactive sink also
+// flushes at every newline, so prompts and answers interleave properly.
+//
+// A sink may also flush asynchronously: a full buffer is then handed to
+// a background thread while printing goes on into a second one, so
+// encoding overlaps with the disk writes. Files opened from a script
+// work this way.
+// Not thread-safe: the interpreter runs on a single thread.
+public class Output {
+
+    // The reader of the process's stdout went away, as in
+    // "msi prog | head -1"; msi ends quietly when it sees this.
+    public static class BrokenPipeException extends RuntimeException {
+        BrokenPipeException() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final int CHARS = 1 << 14;
+    private static final int BYTES = 1 << 16;
+    private static final int FILE_BYTES = 1 << 20;
+
+    private static Output stdout = standardOutput();
+
+    // Files opened from a script, flushed when the program ends.
+    private static final Set<Output> files = new LinkedHashSet<Output>();
+
+    private final WritableByteChannel channel;
+    private final boolean interactive;
+    private final CharsetEncoder encoder;
+    private final CharBuffer chars;
+    private ByteBuffer bytes;
+
+    private final ExecutorService flusher;
+    private ByteBuffer spare;
+    private Future<?> pending;
+    private boolean closed;
+
+    // The file written, for error messages; null for stdout.
+    private String path;
+
+    // Set for the process's own stdout. Once its pipe is broken, the
+    // rest of the output is dropped, so flushing at exit is quiet too.
+    private boolean pipe;
+    private boolean broken;
+
+    public Output(WritableByteChannel channel, boolean interactive) {
+        this(channel, interactive, BYTES, false);
+    }
+
+    public Output(WritableByteChannel channel, boolean interactive, int capacity, boolean async) {
+        this.channel = channel;
+        this.interactive = interactive;
+        this.encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.chars = CharBuffer.allocate(CHARS);
+        this.bytes = ByteBuffer.allocate(capacity);
+        this.flusher = async ? Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "msi-flush");
+            t.setDaemon(true);
+            return t;
+        }) : null;
+        this.spare = async ? ByteBuffer.allocate(capacity) : null;
+    }
+
+    // A file sink with a 1 MB buffer and asynchronous flushing, left open
+    // until close() or the end of the program.
+    public static Output open(String path, boolean append) throws IOException {
+        FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+
+        Output output = new Output(channel, false, FILE_BYTES, true);
+        output.path = path;
+        files.add(output);
+        return output;
+    }
+
+    // Writes text to a file in one go.
+    public static void writeFile(String path, CharSequence text, boolean append) throws IOException {
+        FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+
+        Output output = new Output(channel, false, FILE_BYTES, false);
+        output.print(text);
+        output.close();
+    }
+
+    private static Output standardOutput() {
+        Output output = new Output(new FileOutputStream(FileDescriptor.out).getChannel(), System.console() != null);
+        output.pipe = true;
+        return output;
+    }
+
+    public static Output stdout() {
+        return stdout;
+    }
+
+    // Called after each run, so no output is lost when the program ends.
+    // Files stay open: at the prompt a later line may still write to them.
+    // A file that cannot be written is reported with its path as the
+    // message, after stdout is flushed.
+    public static void flushAll() {
+        try {
+            for (Output file : files) {
+                try {
+                    file.flush();
+                } catch (UncheckedIOException e) {
+                    throw new UncheckedIOException(file.path, e.getCause());
+                }
+            }
+        } finally {
+            stdout.flush();
+        }
+    }
+
+    public String path() {
+        return path;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    // Redirects the interpreter's output; the previous sink is flushed.
+    public static void setStdout(Output output) {
+        stdout.flush();
+        stdout = output;
+    }
+
+    public Output print(char c) {
+        if (!chars.hasRemaining())
+            encode();
+
+        chars.put(c);
+        if (c == '\n' && interactive)
+            flush();
+
+        return this;
+    }
+
+    public Output print(CharSequence cs) {
+        int n = cs.length();
+        for (int i = 0; i < n; ) {
+            if (!chars.hasRemaining())
+                encode();
+
+            int k = Math.min(n - i, chars.remaining());
+            if (cs instanceof String) {
+                chars.put((String) cs, i, i + k);
+            } else if (cs instanceof StringBuilder) {
+                ((StringBuilder) cs).getChars(i, i + k, chars.array(), chars.arrayOffset() + chars.position());
+                chars.position(chars.position() + k);
+            } else {
+                for (int j = i; j < i + k; j++)
+                    chars.put(cs.charAt(j));
+            }
+            i += k;
+        }
+
+        if (interactive && n > 0 && cs.charAt(n - 1) == '\n')
+            flush();
+
+        return this;
+    }
+
+    public Output print(Object obj) {
+        return print(String.valueOf(obj));
+    }
+
+    public Output println() {
+        return print('\n');
+    }
+
+    public Output println(Object obj) {
+        return print(String.valueOf(obj)).print('\n');
+    }
+
+    public void flush() {
+        encode();
+        write();
+        await();
+    }
+
+    public void close() {
+        if (closed)
+            return;
+
+        try {
+            flush();
+        } finally {
+            closed = true;
+            files.remove(this);
+            if (flusher != null)
+                flusher.shutdown();
+
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // Moves the pending characters into the byte buffer, writing it out
+    // whenever it fills. A surrogate pair split by the end of the buffer
+    // stays behind until the rest of it arrives.
+    private void encode() {
+        if (broken) {
+            chars.clear();
+            return;
+        }
+
+        chars.flip();
+        while (true) {
+            CoderResult result = encoder.encode(chars, bytes, false);
+            if (!result.isOverflow())
+                break;
+
+            write();
+        }
+        chars.compact();
+    }
+
+    private void write() {
+        if (flusher == null) {
+            drain(bytes);
+            return;
+        }
+
+        if (bytes.position() == 0)
+            return;
+
+        // The spare buffer is free once the previous write is done.
+        await();
+        final ByteBuffer full = bytes;
+        bytes = spare;
+        spare = full;
+        pending = flusher.submit(() -> drain(full));
+    }
+
+    private void await() {
+        if (pending == null)
+            return;
+
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+
+            throw new UncheckedIOException(new IOException(cause));
+        } finally {
+            pending = null;
+        }
+    }
+
+    private void drain(ByteBuffer buffer) {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining() && !broken)
+                channel.write(buffer);
+        } catch (IOException e) {
+            if (!pipe || !isBrokenPipe(e))
+                throw new UncheckedIOException(e);
+
+            broken = true;
+            throw new BrokenPipeException();
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    // The JDK reports EPIPE only through the message.
+    private static boolean isBrokenPipe(IOException e) {
+        String message = e.getMessage();
+        return message != null && message.startsWith("Broken pipe");
+    }
+
+}
@@ -0,0 +1,154 @@
+package interpreter.io;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import interpreter.value.ArrayData;
+import interpreter.value.DequeData;
+import interpreter.value.DictData;
+import interpreter.value.HeapData;
+import interpreter.value.MatrixData;
+import interpreter.value.SeqData;
+import interpreter.value.SetData;
+import interpreter.value.SharedData;
+import interpreter.value.SortedDictData;
+import interpreter.value.Value;
+
+// Writes values to an Output in the same text form as Value.toString(),
+// but element by element, so printing a collection never builds its
+// whole text in memory. Containers with more than limit elements show
+// only the first limit of them followed by "...".
+public class ValueWriter {
+
+    public static final int UNLIMITED = -1;
+
+    private final Output out;
+    private final int limit;
+
+    public ValueWriter(Output out, int limit) {
+        this.out = out;
+        this.limit = limit;
+    }
+
+    // Type(data), as dump shows it.
+    public void write(Value value) {
+        out.print(value.type.toString()).print('(');
+        writeData(value);
+        out.print(')');
+    }
+
+    // The data alone, as print shows it.
+    public void writeData(Value value) {
+        Object data = value.data;
+        if (data instanceof CharSequence)
+            out.print((CharSequence) data);
+        else if (data instanceof ArrayData || data instanceof SetData ||
+                data instanceof HeapData || data instanceof DequeData)
+            writeElements(((Iterable<?>) data).iterator());
+        else if (data instanceof DictData)
+            writeEntries(((DictData) data).entries().iterator(), ((DictData) data).size());
+        else if (data instanceof SortedDictData)
+            writeEntries(((SortedDictData) data).entries().iterator(), ((SortedDictData) data).size());
+        else if (data instanceof SeqData)
+            writeSeq((SeqData) data);
+        else if (data instanceof MatrixData)
+            writeMatrix((MatrixData) data);
+        else
+            out.print(data);
+    }
+
+    private boolean more(int written) {
+        return limit < 0 || written < limit;
+    }
+
+    private void writeElements(Iterator<?> it) {
+        out.print('[');
+        try {
+            for (int n = 0; it.hasNext(); n++) {
+                if (n > 0)
+                    out.print(", ");
+
+                if (!more(n)) {
+                    out.print("...");
+                    break;
+                }
+
+                write((Value) it.next());
+            }
+        } finally {
+            // Stopping early must still unpin the storage.
+            if (it instanceof SharedData.Cursor)
+                ((SharedData.Cursor) it).close();
+        }
+        out.print(']');
+    }
+
+    // An empty dict prints as [:], told apart from an empty array by its
+    // size rather than by how many entries the limit let through.
+    private void writeEntries(Iterator<Map.Entry<Value, Value>> it, int size) {
+        out.print('[');
+        for (int n = 0; it.hasNext(); n++) {
+            if (n > 0)
+                out.print(", ");
+
+            if (!more(n)) {
+                out.print("...");
+                break;
+            }
+
+            Map.Entry<Value, Value> e = it.next();
+            write(e.getKey());
+            out.print(": ");
+            write(e.getValue());
+        }
+        out.print(size == 0 ? ":]" : "]");
+    }
+
+    private void writeSeq(SeqData seq) {
+        final int[] n = { 0 };
+        out.print('[');
+        seq.forEach(v -> {
+            if (n[0] > 0)
+                out.print(", ");
+
+            if (!more(n[0])) {
+                out.print("...");
+                return false;
+            }
+
+            write(v);
+            n[0]++;
+            return true;
+        });
+        out.print(']');
+    }
+
+    private void writeMatrix(MatrixData matrix) {
+        out.print('[');
+        for (int i = 0; i < matrix.rows(); i++) {
+            if (i > 0)
+                out.print(", ");
+
+            if (!more(i)) {
+                out.print("...");
+                break;
+            }
+
+            out.print('[');
+            for (int j = 0; j < matrix.cols(); j++) {
+                if (j > 0)
+                    out.print(", ");
+
+                if (!more(j)) {
+                    out.print("...");
+                    break;
+                }
+
+                out.print(matrix.get(i, j).data);
+            }
+            out.print(']');
+        }
+        out.print(']');
+    }
+
+}
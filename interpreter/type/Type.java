@@ -9,7 +9,16 @@ public abstract class Type {
         Char,
         String,
         Array,
-        Dict
+        Dict,
+        Range,
+        Seq,
+        Matrix,
+        Set,
+        Heap,
+        Deque,
+        SortedDict,
+        Cache,
+        Writer
     }
 
     private Category category;
@@ -0,0 +1,57 @@
+package interpreter.type.composed;
+
+import interpreter.type.Type;
+
+public class DequeType extends ComposedType {
+
+    private Type innerType;
+
+    private DequeType(Type innerType) {
+        super(Type.Category.Deque);
+        this.innerType = innerType;
+    }
+
+    public Type getInnerType() {
+        return innerType;
+    }
+
+    @Override
+    public boolean match(Type type) {
+        if (type instanceof DequeType) {
+            DequeType stype = (DequeType) type;
+            return this.innerType.equals(stype.innerType);
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode() * 37 + this.innerType.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (obj instanceof DequeType) {
+            return this.match((DequeType) obj);
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuffer()
+            .append("Deque<")
+            .append(innerType)
+            .append(">")
+            .toString();
+    }
+
+    public static DequeType instance(Type innerType) {
+        return new DequeType(innerType);
+    }
+
+}
@@ -0,0 +1,57 @@
+package interpreter.type.composed;
+
+import interpreter.type.Type;
+
+public class HeapType extends ComposedType {
+
+    private Type innerType;
+
+    private HeapType(Type innerType) {
+        super(Type.Category.Heap);
+        this.innerType = innerType;
+    }
+
+    public Type getInnerType() {
+        return innerType;
+    }
+
+    @Override
+    public boolean match(Type type) {
+        if (type instanceof HeapType) {
+            HeapType stype = (HeapType) type;
+            return this.innerType.equals(stype.innerType);
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode() * 31 + this.innerType.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (obj instanceof HeapType) {
+            return this.match((HeapType) obj);
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuffer()
+            .append("Heap<")
+            .append(innerType)
+            .append(">")
+            .toString();
+    }
+
+    public static HeapType instance(Type innerType) {
+        return new HeapType(innerType);
+    }
+
+}
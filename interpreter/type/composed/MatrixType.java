@@ -0,0 +1,57 @@
+package interpreter.type.composed;
+
+import interpreter.type.Type;
+
+public class MatrixType extends ComposedType {
+
+    private Type innerType;
+
+    private MatrixType(Type innerType) {
+        super(Type.Category.Matrix);
+        this.innerType = innerType;
+    }
+
+    public Type getInnerType() {
+        return innerType;
+    }
+
+    @Override
+    public boolean match(Type type) {
+        if (type instanceof MatrixType) {
+            MatrixType mtype = (MatrixType) type;
+            return this.innerType.equals(mtype.innerType);
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode() * 23 + this.innerType.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (obj instanceof MatrixType) {
+            return this.match((MatrixType) obj);
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuffer()
+            .append("Matrix<")
+            .append(innerType)
+            .append(">")
+            .toString();
+    }
+
+    public static MatrixType instance(Type innerType) {
+        return new MatrixType(innerType);
+    }
+
+}
@@ -0,0 +1,32 @@
+package interpreter.type.composed;
+
+import interpreter.type.Type;
+import interpreter.type.primitive.IntType;
+
+public class RangeType extends ComposedType {
+
+    private static RangeType type = new RangeType();
+
+    private RangeType() {
+        super(Type.Category.Range);
+    }
+
+    public Type getInnerType() {
+        return IntType.instance();
+    }
+
+    @Override
+    public boolean match(Type type) {
+        return type.equals(RangeType.type);
+    }
+
+    @Override
+    public String toString() {
+        return "Range<Int>";
+    }
+
+    public static RangeType instance() {
+        return type;
+    }
+
+}
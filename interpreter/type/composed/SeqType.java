@@ -0,0 +1,57 @@
+package interpreter.type.composed;
+
+import interpreter.type.Type;
+
+public class SeqType extends ComposedType {
+
+    private Type innerType;
+
+    private SeqType(Type innerType) {
+        super(Type.Category.Seq);
+        this.innerType = innerType;
+    }
+
+    public Type getInnerType() {
+        return innerType;
+    }
+
+    @Override
+    public boolean match(Type type) {
+        if (type instanceof SeqType) {
+            SeqType stype = (SeqType) type;
+            return this.innerType.equals(stype.innerType);
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode() * 19 + this.innerType.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (obj instanceof SeqType) {
+            return this.match((SeqType) obj);
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuffer()
+            .append("Seq<")
+            .append(innerType)
+            .append(">")
+            .toString();
+    }
+
+    public static SeqType instance(Type innerType) {
+        return new SeqType(innerType);
+    }
+
+}
@@ -0,0 +1,57 @@
+package interpreter.type.composed;
+
+import interpreter.type.Type;
+
+public class SetType extends ComposedType {
+
+    private Type innerType;
+
+    private SetType(Type innerType) {
+        super(Type.Category.Set);
+        this.innerType = innerType;
+    }
+
+    public Type getInnerType() {
+        return innerType;
+    }
+
+    @Override
+    public boolean match(Type type) {
+        if (type instanceof SetType) {
+            SetType stype = (SetType) type;
+            return this.innerType.equals(stype.innerType);
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode() * 29 + this.innerType.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (obj instanceof SetType) {
+            return this.match((SetType) obj);
+        } else {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuffer()
+            .append("Set<")
+            .append(innerType)
+            .append(">")
+            .toString();
+    }
+
+    public static SetType instance(Type innerType) {
+        return new SetType(innerType);
+    }
+
+}
@@ -0,0 +1,27 @@
+package interpreter.type.composed;
+
+import interpreter.type.Type;
+
+public class WriterType extends ComposedType {
+
+    private static WriterType type = new WriterType();
+
+    private WriterType() {
+        super(Type.Category.Writer);
+    }
+
+    @Override
+    public boolean match(Type type) {
+        return type.equals(WriterType.type);
+    }
+
+    @Override
+    public String toString() {
+        return "Writer";
+    }
+
+    public static WriterType instance() {
+        return type;
+    }
+
+}
@@ -0,0 +1,442 @@
+package interpreter.value;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+public class ArrayData extends SharedData implements Iterable<Value> {
+
+    // Backing storage, shared by every handle and view created over it.
+    // refs counts those handles; a handle that needs to write into a
+    // storage with refs > 1 copies its own window first.
+    private static class Storage {
+        Value[] elements;
+        int size;
+        int refs;
+
+        Storage(Value[] elements, int size) {
+            this.elements = elements;
+            this.size = size;
+            this.refs = 1;
+        }
+    }
+
+    private Storage storage;
+    private int offset;
+    private int length;
+
+    // Set while this array is a lazy view over the keys or values of a
+    // dict. The view reads the dict directly and is only turned into a
+    // real storage when it is indexed, written to or stored.
+    private DictData source;
+    private boolean keys;
+
+    // Set instead of storage for Int/Float arrays held as primitives:
+    // those written as Array<Int>(...) or Array<Float>(...), the results
+    // of the numeric kernels, and the fixed-size off-heap arrays of
+    // Array<T>(offHeap: n). offset and length window it the same way.
+    private NumericStorage numeric;
+
+    public static ArrayData offHeap(int size, boolean floats) {
+        return new ArrayData(new OffHeapStorage(size, floats), 0, size);
+    }
+
+    // An off-heap array holding size raw 4-byte elements taken from bits.
+    public static ArrayData offHeap(int[] bits, int size, boolean floats) {
+        OffHeapStorage storage = new OffHeapStorage(size, floats);
+        storage.putBits(bits);
+        return new ArrayData(storage, 0, size);
+    }
+
+    static ArrayData offHeap(float[] elements) {
+        OffHeapStorage storage = new OffHeapStorage(elements.length, true);
+        storage.putFloats(elements);
+        return new ArrayData(storage, 0, elements.length);
+    }
+
+    // A heap array of primitives holding the given Int or Float elements.
+    public static ArrayData numeric(List<Value> elements, boolean floats) {
+        int n = elements.size();
+        PrimitiveStorage storage = floats ?
+            new PrimitiveStorage(new float[Math.max(8, n)], 0) : new PrimitiveStorage(new int[Math.max(8, n)], 0);
+        for (Value v : elements)
+            storage.append(v);
+
+        return new ArrayData(storage, 0, n);
+    }
+
+    // Adopt a kernel's output array as it is.
+    static ArrayData numeric(int[] elements) {
+        return new ArrayData(new PrimitiveStorage(elements, elements.length), 0, elements.length);
+    }
+
+    static ArrayData numeric(float[] elements) {
+        return new ArrayData(new PrimitiveStorage(elements, elements.length), 0, elements.length);
+    }
+
+    // The elements of a numeric Int array, copied out in bulk.
+    int[] numericInts() {
+        int[] a = new int[length];
+        numeric.getBits(offset, a);
+        return a;
+    }
+
+    float[] numericFloats() {
+        float[] a = new float[length];
+        numeric.getFloats(offset, a);
+        return a;
+    }
+
+    private ArrayData(NumericStorage numeric, int offset, int length) {
+        this.numeric = numeric;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    // Takes the given elements as they are; callers pass values that are
+    // not stored anywhere else, such as the output of a native kernel.
+    public static ArrayData of(Value[] elements) {
+        return new ArrayData(new Storage(elements, elements.length), 0, elements.length);
+    }
+
+    public ArrayData(List<Value> elements) {
+        this(new Storage(new Value[elements.size()], elements.size()), 0, elements.size());
+        for (int i = 0; i < length; i++)
+            storage.elements[i] = elements.get(i).hold();
+    }
+
+    private ArrayData(Storage storage, int offset, int length) {
+        this.storage = storage;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    private ArrayData(DictData source, boolean keys) {
+        this.source = source;
+        this.keys = keys;
+    }
+
+    public static ArrayData keysOf(DictData dict) {
+        return new ArrayData(dict, true);
+    }
+
+    public static ArrayData valuesOf(DictData dict) {
+        return new ArrayData(dict, false);
+    }
+
+    public int size() {
+        return source != null ? source.size() : length;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean isOffHeap() {
+        return numeric instanceof OffHeapStorage;
+    }
+
+    boolean isNumeric() {
+        return numeric != null;
+    }
+
+    public boolean contains(Value value) {
+        if (source != null) {
+            if (keys)
+                return source.containsKey(value);
+
+            for (Value v : source.values()) {
+                if (v.equals(value))
+                    return true;
+            }
+
+            return false;
+        }
+
+        if (numeric != null) {
+            for (int i = offset, end = offset + length; i < end; i++) {
+                if (numeric.get(i).equals(value))
+                    return true;
+            }
+
+            return false;
+        }
+
+        for (int i = offset, end = offset + length; i < end; i++) {
+            if (storage.elements[i].equals(value))
+                return true;
+        }
+
+        return false;
+    }
+
+    public Value get(int i) {
+        if (numeric != null)
+            return numeric.get(offset + i);
+
+        materialize();
+        return storage.elements[offset + i];
+    }
+
+    // Returns the element as stored in an unshared storage, so that a
+    // nested container can be written through it.
+    public Value getForUpdate(int i) {
+        if (numeric != null)
+            return get(i);
+
+        materialize();
+        if (storage.refs > 1)
+            unshare(length);
+
+        return storage.elements[offset + i];
+    }
+
+    public void set(int i, Value value) {
+        if (numeric != null) {
+            if (numeric.refs > 1)
+                unshareNumeric();
+
+            numeric.set(offset + i, value);
+            return;
+        }
+
+        Value held = value.hold();
+        materialize();
+        if (storage.refs > 1)
+            unshare(length);
+
+        storage.elements[offset + i].release();
+        storage.elements[offset + i] = held;
+    }
+
+    // Off-heap arrays are fixed-size; callers reject them first.
+    public void append(Value value) {
+        if (numeric != null) {
+            if (numeric.refs > 1 || offset + length != numeric.size)
+                unshareNumeric();
+
+            ((PrimitiveStorage) numeric).append(value);
+            length++;
+            return;
+        }
+
+        Value held = value.hold();
+        materialize();
+        if (storage.refs > 1 || offset + length != storage.size)
+            unshare(length + 1);
+
+        if (storage.size == storage.elements.length)
+            storage.elements = Arrays.copyOf(storage.elements, Math.max(8, storage.size * 2));
+
+        storage.elements[storage.size++] = held;
+        length++;
+    }
+
+    public Value[] toArray() {
+        if (numeric != null) {
+            Value[] elements = new Value[length];
+            for (int i = 0; i < length; i++)
+                elements[i] = numeric.get(offset + i);
+
+            return elements;
+        }
+
+        materialize();
+        return Arrays.copyOfRange(storage.elements, offset, offset + length);
+    }
+
+    // Overwrites the contents of this handle with a permutation of its own
+    // elements. A shared storage is left to its other handles, so each
+    // element is held again as it goes into the new one.
+    public void replace(Value[] elements) {
+        if (numeric != null) {
+            if (numeric.refs > 1)
+                unshareNumeric();
+
+            for (int i = 0; i < length; i++)
+                numeric.set(offset + i, elements[i]);
+            return;
+        }
+
+        materialize();
+        if (storage.refs > 1) {
+            for (int i = 0; i < elements.length; i++)
+                elements[i] = elements[i].hold();
+
+            storage.refs--;
+            storage = new Storage(elements, elements.length);
+            offset = 0;
+        } else {
+            System.arraycopy(elements, 0, storage.elements, offset, length);
+        }
+    }
+
+    public void reverse() {
+        if (numeric != null) {
+            if (numeric.refs > 1)
+                unshareNumeric();
+
+            for (int i = offset, j = offset + length - 1; i < j; i++, j--) {
+                Value tmp = numeric.get(i);
+                numeric.set(i, numeric.get(j));
+                numeric.set(j, tmp);
+            }
+            return;
+        }
+
+        materialize();
+        if (storage.refs > 1)
+            unshare(length);
+
+        for (int i = offset, j = offset + length - 1; i < j; i++, j--) {
+            Value tmp = storage.elements[i];
+            storage.elements[i] = storage.elements[j];
+            storage.elements[j] = tmp;
+        }
+    }
+
+    // Views share the storage of this array; nothing is copied until
+    // one of the sides is written to.
+    public ArrayData slice(int from, int to) {
+        if (numeric != null) {
+            numeric.refs++;
+            return new ArrayData(numeric, offset + from, to - from);
+        }
+
+        materialize();
+        storage.refs++;
+        return new ArrayData(storage, offset + from, to - from);
+    }
+
+    // Iterates over a pinned storage: writes to the array during the
+    // loop copy it, so the loop keeps seeing the elements it started with.
+    @Override
+    public Iterator<Value> iterator() {
+        if (source != null)
+            return keys ? source.keysIterator() : source.valuesIterator();
+
+        if (numeric != null)
+            return numericIterator();
+
+        final Storage pinned = storage;
+        final int end = offset + length;
+        pinned.refs++;
+
+        return new Cursor() {
+            private int i = offset;
+
+            @Override
+            protected boolean more() {
+                return i < end;
+            }
+
+            @Override
+            protected void unpin() {
+                pinned.refs--;
+            }
+
+            @Override
+            public Value next() {
+                return pinned.elements[i++];
+            }
+        };
+    }
+
+    private Iterator<Value> numericIterator() {
+        final NumericStorage pinned = numeric;
+        final int end = offset + length;
+        pinned.refs++;
+
+        return new Cursor() {
+            private int i = offset;
+
+            @Override
+            protected boolean more() {
+                return i < end;
+            }
+
+            @Override
+            protected void unpin() {
+                pinned.release();
+            }
+
+            @Override
+            public Value next() {
+                return pinned.get(i++);
+            }
+        };
+    }
+
+    @Override
+    boolean claim() {
+        materialize();
+        return super.claim();
+    }
+
+    @Override
+    public ArrayData share() {
+        ArrayData data = slice(0, length);
+        data.claim();
+        return data;
+    }
+
+    @Override
+    public void release() {
+        if (numeric != null)
+            numeric.release();
+        else if (storage != null)
+            storage.refs--;
+    }
+
+    private void materialize() {
+        if (source == null)
+            return;
+
+        Value[] elements = new Value[source.size()];
+        int n = 0;
+        for (Value v : keys ? source.keys() : source.values())
+            elements[n++] = v.hold();
+
+        storage = new Storage(elements, n);
+        offset = 0;
+        length = n;
+        source = null;
+    }
+
+    private void unshareNumeric() {
+        NumericStorage old = numeric;
+        numeric = old.copy(offset, length);
+        offset = 0;
+        old.release();
+    }
+
+    private void unshare(int capacity) {
+        Value[] elements = Arrays.copyOfRange(storage.elements, offset, offset + capacity);
+
+        // Elements all have the same type, so only arrays of containers
+        // need their elements to be shared with the copy.
+        if (length > 0 && elements[0].data instanceof SharedData) {
+            for (int i = 0; i < length; i++)
+                elements[i] = elements[i].hold();
+        }
+
+        storage.refs--;
+        storage = new Storage(elements, length);
+        offset = 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuffer sb = new StringBuffer().append("[");
+        boolean first = true;
+        for (Value v : this) {
+            if (!first)
+                sb.append(", ");
+            sb.append(v);
+            first = false;
+        }
+
+        return sb.append("]").toString();
+    }
+
+}
@@ -0,0 +1,274 @@
+package interpreter.value;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+import error.InternalException;
+import interpreter.type.Type;
+import interpreter.type.primitive.FloatType;
+
+// Native sort, reduction and elementwise kernels for arrays of primitive
+// values. Sorts unbox the elements into a primitive array and box the
+// result back; reductions read the elements directly. Above
+// PARALLEL_THRESHOLD sorts and reductions are split over the common
+// fork-join pool.
+//
+// Int and Float arrays held as primitives, on the heap or off it, are
+// copied in and out of the kernels in bulk, and add and scale store their
+// result the same way without boxing: off-heap for an off-heap receiver,
+// on the heap otherwise. Arrays of boxed values are unboxed on the way in.
+// examples/bench/vector.mswift and vector_loop.mswift compare the
+// kernels with the same loop interpreted.
+public final class ArrayKernels {
+
+    public static final int PARALLEL_THRESHOLD = 1 << 14;
+
+    private static final Comparator<Value> BY_TEXT =
+        (a, b) -> CharSequence.compare((CharSequence) a.data, (CharSequence) b.data);
+
+    private ArrayKernels() {
+    }
+
+    public static Value[] sort(ArrayData data, Type elementType) {
+        int n = data.size();
+        boolean parallel = n >= PARALLEL_THRESHOLD;
+        Value[] sorted = new Value[n];
+
+        switch (elementType.getCategory()) {
+            case Int: {
+                int[] a = ints(data);
+                if (parallel)
+                    Arrays.parallelSort(a);
+                else
+                    Arrays.sort(a);
+
+                for (int i = 0; i < n; i++)
+                    sorted[i] = Value.of(a[i]);
+                break;
+            }
+            case Float: {
+                float[] a = floats(data);
+                if (parallel)
+                    Arrays.parallelSort(a);
+                else
+                    Arrays.sort(a);
+
+                for (int i = 0; i < n; i++)
+                    sorted[i] = new Value(FloatType.instance(), a[i]);
+                break;
+            }
+            case Char: {
+                Value[] e = data.toArray();
+                char[] a = new char[n];
+                for (int i = 0; i < n; i++)
+                    a[i] = (Character) e[i].data;
+
+                if (parallel)
+                    Arrays.parallelSort(a);
+                else
+                    Arrays.sort(a);
+
+                for (int i = 0; i < n; i++)
+                    sorted[i] = Value.of(a[i]);
+                break;
+            }
+            case String:
+                sorted = data.toArray();
+                if (parallel)
+                    Arrays.parallelSort(sorted, BY_TEXT);
+                else
+                    Arrays.sort(sorted, BY_TEXT);
+                break;
+            default:
+                throw new InternalException("Unreachable");
+        }
+
+        return sorted;
+    }
+
+    public static Value sum(ArrayData data, Type elementType) {
+        if (data.isNumeric())
+            return numericSum(data, elementType);
+
+        Value[] e = data.toArray();
+        IntStream indexes = indexes(e.length);
+        switch (elementType.getCategory()) {
+            case Int:
+                return Value.of(indexes.map(i -> (Integer) e[i].data).sum());
+            case Float:
+                return new Value(FloatType.instance(),
+                    (float) indexes.mapToDouble(i -> (Float) e[i].data).sum());
+            default:
+                throw new InternalException("Unreachable");
+        }
+    }
+
+    private static Value numericSum(ArrayData data, Type elementType) {
+        if (elementType.getCategory() == Type.Category.Int) {
+            int s = 0;
+            for (int x : data.numericInts())
+                s += x;
+
+            return Value.of(s);
+        }
+
+        double s = 0;
+        for (float x : data.numericFloats())
+            s += x;
+
+        return new Value(FloatType.instance(), (float) s);
+    }
+
+    // The array must not be empty.
+    public static Value min(ArrayData data, Type elementType) {
+        return extreme(data, elementType, false);
+    }
+
+    public static Value max(ArrayData data, Type elementType) {
+        return extreme(data, elementType, true);
+    }
+
+    private static Value extreme(ArrayData data, Type elementType, boolean max) {
+        Value[] e = data.toArray();
+        IntStream indexes = indexes(e.length);
+        switch (elementType.getCategory()) {
+            case Int: {
+                IntStream s = indexes.map(i -> (Integer) e[i].data);
+                return Value.of(max ? s.max().getAsInt() : s.min().getAsInt());
+            }
+            case Float:
+                return indexes.mapToObj(i -> e[i])
+                    .reduce((a, b) -> (Float.compare((Float) a.data, (Float) b.data) < 0) == max ? b : a)
+                    .get();
+            case Char: {
+                IntStream s = indexes.map(i -> (Character) e[i].data);
+                return Value.of((char) (max ? s.max().getAsInt() : s.min().getAsInt()));
+            }
+            case String:
+                return indexes.mapToObj(i -> e[i])
+                    .reduce((a, b) -> (BY_TEXT.compare(a, b) < 0) == max ? b : a)
+                    .get();
+            default:
+                throw new InternalException("Unreachable");
+        }
+    }
+
+    // Elementwise kernels: plain counted loops over primitive arrays.
+    // The result is stored the way the receiver a is.
+    public static ArrayData add(ArrayData a, ArrayData b, Type elementType) {
+        switch (elementType.getCategory()) {
+            case Int: {
+                int[] x = ints(a), y = ints(b);
+                for (int i = 0; i < x.length; i++)
+                    x[i] += y[i];
+
+                return result(a, x);
+            }
+            case Float: {
+                float[] x = floats(a), y = floats(b);
+                for (int i = 0; i < x.length; i++)
+                    x[i] += y[i];
+
+                return result(a, x);
+            }
+            default:
+                throw new InternalException("Unreachable");
+        }
+    }
+
+    public static ArrayData scale(ArrayData a, Value k, Type elementType) {
+        switch (elementType.getCategory()) {
+            case Int: {
+                int[] x = ints(a);
+                int f = (Integer) k.data;
+                for (int i = 0; i < x.length; i++)
+                    x[i] *= f;
+
+                return result(a, x);
+            }
+            case Float: {
+                float[] x = floats(a);
+                float f = (Float) k.data;
+                for (int i = 0; i < x.length; i++)
+                    x[i] *= f;
+
+                return result(a, x);
+            }
+            default:
+                throw new InternalException("Unreachable");
+        }
+    }
+
+    public static Value dot(ArrayData a, ArrayData b, Type elementType) {
+        switch (elementType.getCategory()) {
+            case Int: {
+                int[] x = ints(a), y = ints(b);
+                int s = 0;
+                for (int i = 0; i < x.length; i++)
+                    s += x[i] * y[i];
+
+                return Value.of(s);
+            }
+            case Float: {
+                float[] x = floats(a), y = floats(b);
+
+                // Float addition is not associative, so the JIT will not
+                // reorder this sum by itself; four partial sums give it
+                // independent lanes to work with.
+                float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+                int i = 0;
+                for (int n = x.length & ~3; i < n; i += 4) {
+                    s0 += x[i] * y[i];
+                    s1 += x[i + 1] * y[i + 1];
+                    s2 += x[i + 2] * y[i + 2];
+                    s3 += x[i + 3] * y[i + 3];
+                }
+                for (; i < x.length; i++)
+                    s0 += x[i] * y[i];
+
+                return new Value(FloatType.instance(), (s0 + s1) + (s2 + s3));
+            }
+            default:
+                throw new InternalException("Unreachable");
+        }
+    }
+
+    private static int[] ints(ArrayData data) {
+        if (data.isNumeric())
+            return data.numericInts();
+
+        Value[] e = data.toArray();
+        int[] a = new int[e.length];
+        for (int i = 0; i < e.length; i++)
+            a[i] = (Integer) e[i].data;
+
+        return a;
+    }
+
+    private static float[] floats(ArrayData data) {
+        if (data.isNumeric())
+            return data.numericFloats();
+
+        Value[] e = data.toArray();
+        float[] a = new float[e.length];
+        for (int i = 0; i < e.length; i++)
+            a[i] = (Float) e[i].data;
+
+        return a;
+    }
+
+    private static ArrayData result(ArrayData a, int[] x) {
+        return a.isOffHeap() ? ArrayData.offHeap(x, x.length, false) : ArrayData.numeric(x);
+    }
+
+    private static ArrayData result(ArrayData a, float[] x) {
+        return a.isOffHeap() ? ArrayData.offHeap(x) : ArrayData.numeric(x);
+    }
+
+    private static IntStream indexes(int n) {
+        IntStream s = IntStream.range(0, n);
+        return n >= PARALLEL_THRESHOLD ? s.parallel() : s;
+    }
+
+}
@@ -0,0 +1,43 @@
+package interpreter.value;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// A read-only window over ASCII bytes, e.g. a line of a memory-mapped
+// file. Each byte is its own char, so nothing is decoded or copied until
+// the text is turned into a String.
+public class AsciiText implements CharSequence {
+
+    private final ByteBuffer bytes;
+    private final int offset;
+    private final int length;
+
+    public AsciiText(ByteBuffer bytes, int from, int to) {
+        this.bytes = bytes;
+        this.offset = from;
+        this.length = to - from;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) bytes.get(offset + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new AsciiText(bytes, offset + start, offset + end);
+    }
+
+    @Override
+    public String toString() {
+        byte[] a = new byte[length];
+        bytes.get(offset, a);
+        return new String(a, StandardCharsets.ISO_8859_1);
+    }
+
+}
@@ -0,0 +1,411 @@
+package interpreter.value;
+
+import java.util.AbstractMap;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+// B+ tree from keys to values. Each node keeps up to MAX keys in one
+// array, so a search reads a few contiguous arrays rather than chasing a
+// pointer per comparison; values live in the leaves only, and the leaves
+// are linked left to right for in-order and range scans. Every node but
+// the root holds at least MIN keys, so the height stays O(log n).
+final class BTree {
+
+    private static final int MAX = 32;
+    private static final int MIN = MAX / 2;
+
+    private static final class Node {
+        // One slot beyond MAX, so a node can overflow before it splits.
+        final Value[] keys = new Value[MAX + 1];
+        int n;
+
+        // Leaves: values[i] belongs to keys[i]; next is the leaf to the right.
+        final Value[] values;
+        Node next;
+
+        // Inner nodes: children[i] holds the keys k with
+        // keys[i - 1] <= k < keys[i].
+        final Node[] children;
+
+        Node(boolean leaf) {
+            values = leaf ? new Value[MAX + 1] : null;
+            children = leaf ? null : new Node[MAX + 2];
+        }
+
+        boolean isLeaf() {
+            return children == null;
+        }
+    }
+
+    private final Comparator<Value> order;
+    private Node root = new Node(true);
+    private int size;
+
+    // Set by insert when a node splits: the key that separates it from
+    // its new right sibling, and that sibling.
+    private Value splitKey;
+    private Node sibling;
+
+    BTree(Comparator<Value> order) {
+        this.order = order;
+    }
+
+    int size() {
+        return size;
+    }
+
+    Value get(Value key) {
+        Node node = root;
+        while (!node.isLeaf())
+            node = node.children[childIndex(node, key)];
+
+        int i = search(node, key);
+        return i >= 0 ? node.values[i] : null;
+    }
+
+    // Returns the value replaced, or null if the key is new.
+    Value put(Value key, Value value) {
+        Value old = insert(root, key, value);
+        if (splitKey != null) {
+            Node top = new Node(false);
+            top.keys[0] = splitKey;
+            top.children[0] = root;
+            top.children[1] = sibling;
+            top.n = 1;
+            root = top;
+            splitKey = null;
+        }
+
+        if (old == null)
+            size++;
+
+        return old;
+    }
+
+    // Returns the value removed, or null if the key was absent.
+    Value remove(Value key) {
+        Value old = delete(root, key);
+        if (!root.isLeaf() && root.n == 0)
+            root = root.children[0];
+
+        if (old != null)
+            size--;
+
+        return old;
+    }
+
+    // Greatest key <= key (< key if not inclusive), or null.
+    Value floorKey(Value key, boolean inclusive) {
+        return floor(root, key, inclusive);
+    }
+
+    // Least key >= key, or null.
+    Value ceilingKey(Value key) {
+        Node leaf = root;
+        while (!leaf.isLeaf())
+            leaf = leaf.children[childIndex(leaf, key)];
+
+        int i = search(leaf, key);
+        for (i = i >= 0 ? i : -i - 1; leaf != null; leaf = leaf.next, i = 0) {
+            if (i < leaf.n)
+                return leaf.keys[i];
+        }
+
+        return null;
+    }
+
+    // Entries with from <= key and key < to (or <= to), in order; a null
+    // bound is open.
+    Iterator<Map.Entry<Value, Value>> entries(final Value from, final Value to, final boolean toInclusive) {
+        Node leaf = root;
+        int start = 0;
+        if (from == null) {
+            while (!leaf.isLeaf())
+                leaf = leaf.children[0];
+        } else {
+            while (!leaf.isLeaf())
+                leaf = leaf.children[childIndex(leaf, from)];
+
+            start = search(leaf, from);
+            if (start < 0)
+                start = -start - 1;
+        }
+
+        final Node first = leaf;
+        final int firstIndex = start;
+        return new Iterator<Map.Entry<Value, Value>>() {
+            private Node node = first;
+            private int i = firstIndex;
+
+            @Override
+            public boolean hasNext() {
+                while (node != null && i == node.n) {
+                    node = node.next;
+                    i = 0;
+                }
+
+                if (node == null)
+                    return false;
+
+                if (to == null)
+                    return true;
+
+                int c = order.compare(node.keys[i], to);
+                return toInclusive ? c <= 0 : c < 0;
+            }
+
+            @Override
+            public Map.Entry<Value, Value> next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+
+                Map.Entry<Value, Value> e = new AbstractMap.SimpleImmutableEntry<>(node.keys[i], node.values[i]);
+                i++;
+                return e;
+            }
+        };
+    }
+
+    // Index of key in a leaf, or -(insertion point) - 1.
+    private int search(Node leaf, Value key) {
+        int lo = 0, hi = leaf.n - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = order.compare(leaf.keys[mid], key);
+            if (c < 0)
+                lo = mid + 1;
+            else if (c > 0)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+
+        return -lo - 1;
+    }
+
+    // The child of an inner node whose range holds key: the number of
+    // separators <= key.
+    private int childIndex(Node node, Value key) {
+        int lo = 0, hi = node.n;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (order.compare(node.keys[mid], key) <= 0)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+
+        return lo;
+    }
+
+    private Value insert(Node node, Value key, Value value) {
+        if (node.isLeaf()) {
+            int i = search(node, key);
+            if (i >= 0) {
+                Value old = node.values[i];
+                node.values[i] = value;
+                return old;
+            }
+
+            i = -i - 1;
+            System.arraycopy(node.keys, i, node.keys, i + 1, node.n - i);
+            System.arraycopy(node.values, i, node.values, i + 1, node.n - i);
+            node.keys[i] = key;
+            node.values[i] = value;
+            node.n++;
+            if (node.n > MAX)
+                splitLeaf(node);
+
+            return null;
+        }
+
+        int c = childIndex(node, key);
+        Value old = insert(node.children[c], key, value);
+        if (splitKey == null)
+            return old;
+
+        System.arraycopy(node.keys, c, node.keys, c + 1, node.n - c);
+        System.arraycopy(node.children, c + 1, node.children, c + 2, node.n - c);
+        node.keys[c] = splitKey;
+        node.children[c + 1] = sibling;
+        node.n++;
+        splitKey = null;
+        if (node.n > MAX)
+            splitInner(node);
+
+        return old;
+    }
+
+    private void splitLeaf(Node node) {
+        Node right = new Node(true);
+        int half = node.n / 2;
+        right.n = node.n - half;
+        System.arraycopy(node.keys, half, right.keys, 0, right.n);
+        System.arraycopy(node.values, half, right.values, 0, right.n);
+        clear(node.keys, half, node.n);
+        clear(node.values, half, node.n);
+        node.n = half;
+
+        right.next = node.next;
+        node.next = right;
+        splitKey = right.keys[0];
+        sibling = right;
+    }
+
+    // The middle key moves up; the keys and children after it move right.
+    private void splitInner(Node node) {
+        Node right = new Node(false);
+        int mid = node.n / 2;
+        right.n = node.n - mid - 1;
+        System.arraycopy(node.keys, mid + 1, right.keys, 0, right.n);
+        System.arraycopy(node.children, mid + 1, right.children, 0, right.n + 1);
+        splitKey = node.keys[mid];
+        clear(node.keys, mid, node.n);
+        clear(node.children, mid + 1, node.n + 1);
+        node.n = mid;
+        sibling = right;
+    }
+
+    private Value delete(Node node, Value key) {
+        if (node.isLeaf()) {
+            int i = search(node, key);
+            if (i < 0)
+                return null;
+
+            Value old = node.values[i];
+            System.arraycopy(node.keys, i + 1, node.keys, i, node.n - i - 1);
+            System.arraycopy(node.values, i + 1, node.values, i, node.n - i - 1);
+            node.n--;
+            node.keys[node.n] = null;
+            node.values[node.n] = null;
+            return old;
+        }
+
+        int c = childIndex(node, key);
+        Value old = delete(node.children[c], key);
+        if (old != null && node.children[c].n < MIN)
+            rebalance(node, c);
+
+        return old;
+    }
+
+    // Refills child c of node, which fell below MIN keys, from a sibling
+    // with keys to spare, or else merges it with one.
+    private void rebalance(Node node, int c) {
+        Node child = node.children[c];
+        Node left = c > 0 ? node.children[c - 1] : null;
+        Node right = c < node.n ? node.children[c + 1] : null;
+
+        if (left != null && left.n > MIN) {
+            System.arraycopy(child.keys, 0, child.keys, 1, child.n);
+            if (child.isLeaf()) {
+                System.arraycopy(child.values, 0, child.values, 1, child.n);
+                child.keys[0] = left.keys[left.n - 1];
+                child.values[0] = left.values[left.n - 1];
+                left.values[left.n - 1] = null;
+                node.keys[c - 1] = child.keys[0];
+            } else {
+                System.arraycopy(child.children, 0, child.children, 1, child.n + 1);
+                child.keys[0] = node.keys[c - 1];
+                child.children[0] = left.children[left.n];
+                left.children[left.n] = null;
+                node.keys[c - 1] = left.keys[left.n - 1];
+            }
+            left.keys[left.n - 1] = null;
+            left.n--;
+            child.n++;
+        } else if (right != null && right.n > MIN) {
+            if (child.isLeaf()) {
+                child.keys[child.n] = right.keys[0];
+                child.values[child.n] = right.values[0];
+                System.arraycopy(right.values, 1, right.values, 0, right.n - 1);
+                right.values[right.n - 1] = null;
+                System.arraycopy(right.keys, 1, right.keys, 0, right.n - 1);
+                node.keys[c] = right.keys[0];
+            } else {
+                child.keys[child.n] = node.keys[c];
+                child.children[child.n + 1] = right.children[0];
+                node.keys[c] = right.keys[0];
+                System.arraycopy(right.keys, 1, right.keys, 0, right.n - 1);
+                System.arraycopy(right.children, 1, right.children, 0, right.n);
+                right.children[right.n] = null;
+            }
+            right.keys[right.n - 1] = null;
+            right.n--;
+            child.n++;
+        } else if (left != null) {
+            merge(node, c - 1);
+        } else {
+            merge(node, c);
+        }
+    }
+
+    // Moves child s + 1 of node into child s, with the separator between
+    // them when they are inner nodes.
+    private void merge(Node node, int s) {
+        Node a = node.children[s];
+        Node b = node.children[s + 1];
+        if (a.isLeaf()) {
+            System.arraycopy(b.keys, 0, a.keys, a.n, b.n);
+            System.arraycopy(b.values, 0, a.values, a.n, b.n);
+            a.n += b.n;
+            a.next = b.next;
+        } else {
+            a.keys[a.n] = node.keys[s];
+            System.arraycopy(b.keys, 0, a.keys, a.n + 1, b.n);
+            System.arraycopy(b.children, 0, a.children, a.n + 1, b.n + 1);
+            a.n += b.n + 1;
+        }
+
+        System.arraycopy(node.keys, s + 1, node.keys, s, node.n - s - 1);
+        System.arraycopy(node.children, s + 2, node.children, s + 1, node.n - s - 1);
+        node.n--;
+        node.keys[node.n] = null;
+        node.children[node.n + 1] = null;
+    }
+
+    private Value floor(Node node, Value key, boolean inclusive) {
+        if (node.isLeaf()) {
+            int i = search(node, key);
+            if (i >= 0)
+                return inclusive ? node.keys[i] : (i > 0 ? node.keys[i - 1] : null);
+
+            i = -i - 1;
+            return i > 0 ? node.keys[i - 1] : null;
+        }
+
+        // Keys in children before c are all below every key in child c.
+        int c = inclusive ? childIndex(node, key) : lowerIndex(node, key);
+        Value k = floor(node.children[c], key, inclusive);
+        if (k != null || c == 0)
+            return k;
+
+        Node n = node.children[c - 1];
+        while (!n.isLeaf())
+            n = n.children[n.n];
+
+        return n.n > 0 ? n.keys[n.n - 1] : null;
+    }
+
+    // The child that may hold keys < key: the number of separators < key.
+    private int lowerIndex(Node node, Value key) {
+        int lo = 0, hi = node.n;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (order.compare(node.keys[mid], key) < 0)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+
+        return lo;
+    }
+
+    private static void clear(Object[] a, int from, int to) {
+        for (int i = from; i < to; i++)
+            a[i] = null;
+    }
+
+}
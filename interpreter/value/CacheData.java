@@ -0,0 +1,225 @@
+package interpreter.value;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Bounded dictionary that evicts its least recently used entry once it
+// holds more than capacity entries, or more than maxBytes estimated bytes
+// when that bound is set. The access-ordered map makes lookups, inserts
+// and evictions O(1). Every lookup counts as a hit or a miss.
+public class CacheData extends SharedData {
+
+    private static class Storage {
+        LinkedHashMap<Value, Value> map;
+        long bytes;
+        long hits;
+        long misses;
+        long evictions;
+        int refs;
+
+        Storage(LinkedHashMap<Value, Value> map) {
+            this.map = map;
+            this.refs = 1;
+        }
+    }
+
+    private Storage storage;
+    private final int capacity;
+    private final long maxBytes;
+
+    // maxBytes <= 0: only the number of entries is bounded.
+    public CacheData(int capacity, long maxBytes) {
+        this(newStorage(capacity), capacity, maxBytes);
+    }
+
+    private CacheData(Storage storage, int capacity, long maxBytes) {
+        this.storage = storage;
+        this.capacity = capacity;
+        this.maxBytes = maxBytes;
+    }
+
+    private static Storage newStorage(int capacity) {
+        return new Storage(new LinkedHashMap<>(Math.min(capacity, 1 << 16) * 4 / 3 + 1, 0.75f, true));
+    }
+
+    public int size() {
+        return storage.map.size();
+    }
+
+    public boolean isEmpty() {
+        return storage.map.isEmpty();
+    }
+
+    public long hits() {
+        return storage.hits;
+    }
+
+    public long misses() {
+        return storage.misses;
+    }
+
+    public long evictions() {
+        return storage.evictions;
+    }
+
+    // Does not count as a lookup and leaves the entry's age alone.
+    public boolean containsKey(Value key) {
+        return storage.map.containsKey(key);
+    }
+
+    // A lookup makes the entry the most recently used one, which reorders
+    // the map, so it is a write as far as sharing is concerned.
+    public Value get(Value key) {
+        if (storage.refs > 1)
+            unshare();
+
+        Value v = storage.map.get(key);
+        if (v != null)
+            storage.hits++;
+        else
+            storage.misses++;
+
+        return v;
+    }
+
+    public void put(Value key, Value value) {
+        Value held = value.hold();
+        if (storage.refs > 1)
+            unshare();
+
+        // An existing entry keeps its own key handle.
+        Value hkey = key.hold();
+        Value old = storage.map.put(hkey, held);
+        if (old != null) {
+            storage.bytes -= bytes(old);
+            old.release();
+            hkey.release();
+        } else {
+            storage.bytes += bytes(key);
+        }
+        storage.bytes += bytes(held);
+
+        evict();
+    }
+
+    public boolean remove(Value key) {
+        if (!storage.map.containsKey(key))
+            return false;
+
+        if (storage.refs > 1)
+            unshare();
+
+        if (!(key.data instanceof SharedData)) {
+            Value v = storage.map.remove(key);
+            storage.bytes -= bytes(key) + bytes(v);
+            v.release();
+            return true;
+        }
+
+        // The stored handle, not the argument, is the one to release.
+        Iterator<Map.Entry<Value, Value>> it = storage.map.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Value, Value> e = it.next();
+            if (e.getKey().equals(key)) {
+                it.remove();
+                drop(e);
+                break;
+            }
+        }
+
+        return true;
+    }
+
+    // The eldest entry comes first in an access-ordered map. The entry
+    // just written is never evicted, even if it alone exceeds maxBytes.
+    private void evict() {
+        Iterator<Map.Entry<Value, Value>> it = storage.map.entrySet().iterator();
+        while (storage.map.size() > 1 &&
+                (storage.map.size() > capacity || (maxBytes > 0 && storage.bytes > maxBytes))) {
+            Map.Entry<Value, Value> e = it.next();
+            it.remove();
+            drop(e);
+            storage.evictions++;
+        }
+    }
+
+    private void drop(Map.Entry<Value, Value> e) {
+        storage.bytes -= bytes(e.getKey()) + bytes(e.getValue());
+        e.getKey().release();
+        e.getValue().release();
+    }
+
+    // Rough footprint of a value on the Java heap: object headers plus
+    // payload. Containers are charged per element, nested ones in full.
+    static long bytes(Value v) {
+        Object data = v.data;
+        if (data instanceof CharSequence)
+            return 40 + 2L * ((CharSequence) data).length();
+        else if (data instanceof ArrayData) {
+            long n = 24;
+            for (Value e : ((ArrayData) data).toArray())
+                n += 8 + bytes(e);
+            return n;
+        } else if (data instanceof DictData) {
+            long n = 48;
+            for (Value k : ((DictData) data).keys())
+                n += 32 + bytes(k);
+            for (Value e : ((DictData) data).values())
+                n += bytes(e);
+            return n;
+        } else if (data instanceof SharedData) {
+            return 64;
+        } else {
+            return 16;
+        }
+    }
+
+    @Override
+    public CacheData share() {
+        storage.refs++;
+        CacheData data = new CacheData(storage, capacity, maxBytes);
+        data.claim();
+        return data;
+    }
+
+    @Override
+    public void release() {
+        storage.refs--;
+    }
+
+    // The copy keeps the recency order and the counters.
+    private void unshare() {
+        Storage old = storage;
+        storage = newStorage(capacity);
+        for (Map.Entry<Value, Value> e : old.map.entrySet())
+            storage.map.put(e.getKey().hold(), e.getValue().hold());
+
+        storage.bytes = old.bytes;
+        storage.hits = old.hits;
+        storage.misses = old.misses;
+        storage.evictions = old.evictions;
+        old.refs--;
+    }
+
+    // Least recently used entry first, then the counters.
+    @Override
+    public String toString() {
+        StringBuffer sb = new StringBuffer().append("[");
+        boolean first = true;
+        for (Map.Entry<Value, Value> e : storage.map.entrySet()) {
+            if (!first)
+                sb.append(", ");
+            sb.append(e.getKey()).append(": ").append(e.getValue());
+            first = false;
+        }
+
+        return sb.append(first ? ":]" : "]")
+            .append(" (hits: ").append(storage.hits)
+            .append(", misses: ").append(storage.misses)
+            .append(", evictions: ").append(storage.evictions)
+            .append(")")
+            .toString();
+    }
+
+}
@@ -0,0 +1,163 @@
+package interpreter.value;
+
+import java.util.Iterator;
+
+// Double-ended queue over a power-of-two ring buffer: pushes and pops at
+// either end are O(1) and never shift the other elements.
+public class DequeData extends SharedData implements Iterable<Value> {
+
+    private static class Storage {
+        Value[] elements;
+        int head;
+        int size;
+        int refs;
+
+        Storage(Value[] elements, int head, int size) {
+            this.elements = elements;
+            this.head = head;
+            this.size = size;
+            this.refs = 1;
+        }
+    }
+
+    private Storage storage;
+
+    public DequeData() {
+        this.storage = new Storage(new Value[8], 0, 0);
+    }
+
+    private DequeData(Storage storage) {
+        this.storage = storage;
+    }
+
+    public int size() {
+        return storage.size;
+    }
+
+    public boolean isEmpty() {
+        return storage.size == 0;
+    }
+
+    public void pushBack(Value value) {
+        Value held = value.hold();
+        prepareWrite(1);
+        storage.elements[slot(storage.size)] = held;
+        storage.size++;
+    }
+
+    public void pushFront(Value value) {
+        Value held = value.hold();
+        prepareWrite(1);
+        storage.head = (storage.head - 1) & (storage.elements.length - 1);
+        storage.elements[storage.head] = held;
+        storage.size++;
+    }
+
+    // The caller takes over the handle of the removed element.
+    public Value popFront() {
+        prepareWrite(0);
+        Value v = storage.elements[storage.head];
+        storage.elements[storage.head] = null;
+        storage.head = slot(1);
+        storage.size--;
+        return v;
+    }
+
+    public Value popBack() {
+        prepareWrite(0);
+        int i = slot(storage.size - 1);
+        Value v = storage.elements[i];
+        storage.elements[i] = null;
+        storage.size--;
+        return v;
+    }
+
+    public Value front() {
+        return storage.elements[storage.head];
+    }
+
+    public Value back() {
+        return storage.elements[slot(storage.size - 1)];
+    }
+
+    // Like ArrayData.iterator(), pins the storage until the loop is over.
+    @Override
+    public Iterator<Value> iterator() {
+        final Storage pinned = storage;
+        pinned.refs++;
+
+        return new Cursor() {
+            private int i = 0;
+
+            @Override
+            protected boolean more() {
+                return i < pinned.size;
+            }
+
+            @Override
+            protected void unpin() {
+                pinned.refs--;
+            }
+
+            @Override
+            public Value next() {
+                return pinned.elements[(pinned.head + i++) & (pinned.elements.length - 1)];
+            }
+        };
+    }
+
+    @Override
+    public DequeData share() {
+        storage.refs++;
+        DequeData data = new DequeData(storage);
+        data.claim();
+        return data;
+    }
+
+    @Override
+    public void release() {
+        storage.refs--;
+    }
+
+    private int slot(int i) {
+        return (storage.head + i) & (storage.elements.length - 1);
+    }
+
+    // Copies the ring into a fresh, unshared buffer when it is shared or
+    // too small to take extra more elements.
+    private void prepareWrite(int extra) {
+        Storage old = storage;
+        boolean shared = old.refs > 1;
+        if (!shared && old.size + extra <= old.elements.length)
+            return;
+
+        int capacity = old.elements.length;
+        while (old.size + extra > capacity)
+            capacity *= 2;
+
+        Value[] elements = new Value[capacity];
+        for (int i = 0; i < old.size; i++) {
+            Value v = old.elements[slot(i)];
+            elements[i] = shared ? v.hold() : v;
+        }
+
+        storage = new Storage(elements, 0, old.size);
+        if (shared)
+            old.refs--;
+    }
+
+    @Override
+    public String toString() {
+        StringBuffer sb = new StringBuffer().append("[");
+        boolean first = true;
+        for (Value v : this) {
+            if (!first)
+                sb.append(", ");
+            sb.append(v);
+            first = false;
+        }
+
+        return sb.append("]").toString();
+    }
+
+}
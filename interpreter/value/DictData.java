@@ -0,0 +1,143 @@
+package interpreter.value;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class DictData extends SharedData {
+
+    // Same scheme as ArrayData: the map is shared between handles and
+    // copied by the first handle that writes while refs > 1.
+    private static class Storage {
+        LinkedHashMap<Value, Value> map;
+        int refs;
+
+        Storage(LinkedHashMap<Value, Value> map) {
+            this.map = map;
+            this.refs = 1;
+        }
+    }
+
+    private Storage storage;
+
+    public DictData() {
+        this(new Storage(new LinkedHashMap<>()));
+    }
+
+    private DictData(Storage storage) {
+        this.storage = storage;
+    }
+
+    public int size() {
+        return storage.map.size();
+    }
+
+    public boolean isEmpty() {
+        return storage.map.isEmpty();
+    }
+
+    public boolean containsKey(Value key) {
+        return storage.map.containsKey(key);
+    }
+
+    public Value get(Value key) {
+        return storage.map.get(key);
+    }
+
+    public Value getForUpdate(Value key) {
+        if (storage.refs > 1)
+            unshare();
+
+        return storage.map.get(key);
+    }
+
+    public void put(Value key, Value value) {
+        Value held = value.hold();
+        if (storage.refs > 1)
+            unshare();
+
+        Value old = storage.map.put(key.hold(), held);
+        if (old != null)
+            old.release();
+    }
+
+    public Iterable<Value> keys() {
+        return storage.map.keySet();
+    }
+
+    public Iterable<Value> values() {
+        return storage.map.values();
+    }
+
+    public Iterable<Map.Entry<Value, Value>> entries() {
+        return storage.map.entrySet();
+    }
+
+    // Like ArrayData.iterator(), these pin the current storage until the
+    // iteration is over, so the dict may be written to inside the loop.
+    public Iterator<Value> keysIterator() {
+        return pinned(storage, storage.map.keySet().iterator());
+    }
+
+    public Iterator<Value> valuesIterator() {
+        return pinned(storage, storage.map.values().iterator());
+    }
+
+    private static Iterator<Value> pinned(final Storage pinned, final Iterator<Value> it) {
+        pinned.refs++;
+
+        return new Cursor() {
+            @Override
+            protected boolean more() {
+                return it.hasNext();
+            }
+
+            @Override
+            protected void unpin() {
+                pinned.refs--;
+            }
+
+            @Override
+            public Value next() {
+                return it.next();
+            }
+        };
+    }
+
+    @Override
+    public DictData share() {
+        storage.refs++;
+        DictData data = new DictData(storage);
+        data.claim();
+        return data;
+    }
+
+    @Override
+    public void release() {
+        storage.refs--;
+    }
+
+    private void unshare() {
+        LinkedHashMap<Value, Value> map = new LinkedHashMap<>(storage.map.size() * 4 / 3 + 1);
+        for (Map.Entry<Value, Value> e : storage.map.entrySet())
+            map.put(e.getKey().hold(), e.getValue().hold());
+
+        storage.refs--;
+        storage = new Storage(map);
+    }
+
+    @Override
+    public String toString() {
+        StringBuffer sb = new StringBuffer().append("[");
+        boolean first = true;
+        for (Map.Entry<Value, Value> e : storage.map.entrySet()) {
+            if (!first)
+                sb.append(", ");
+            sb.append(e.getKey()).append(": ").append(e.getValue());
+            first = false;
+        }
+
+        return sb.append(storage.map.isEmpty() ? ":]" : "]").toString();
+    }
+
+}
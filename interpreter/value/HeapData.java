@@ -0,0 +1,245 @@
+package interpreter.value;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+
+import interpreter.type.primitive.FloatType;
+
+// Binary heap, min-first unless built with max. Int and Float keys are
+// kept unboxed in an int[] or float[]; Char and String elements sit in a
+// Value[] ordered by their natural order.
+public class HeapData extends SharedData implements Iterable<Value> {
+
+    private static final Comparator<Value> NATURAL = (a, b) -> {
+        if (a.data instanceof Character)
+            return Character.compare((Character) a.data, (Character) b.data);
+
+        return CharSequence.compare((CharSequence) a.data, (CharSequence) b.data);
+    };
+
+    private static class Storage {
+        int[] ints;
+        float[] floats;
+        Value[] values;
+        int size;
+        int refs;
+
+        Storage(int[] ints, float[] floats, Value[] values, int size) {
+            this.ints = ints;
+            this.floats = floats;
+            this.values = values;
+            this.size = size;
+            this.refs = 1;
+        }
+    }
+
+    private Storage storage;
+    private final boolean max;
+
+    private HeapData(Storage storage, boolean max) {
+        this.storage = storage;
+        this.max = max;
+    }
+
+    public static HeapData ofInts(boolean max) {
+        return new HeapData(new Storage(new int[8], null, null, 0), max);
+    }
+
+    public static HeapData ofFloats(boolean max) {
+        return new HeapData(new Storage(null, new float[8], null, 0), max);
+    }
+
+    public static HeapData ofValues(boolean max) {
+        return new HeapData(new Storage(null, null, new Value[8], 0), max);
+    }
+
+    public int size() {
+        return storage.size;
+    }
+
+    public boolean isEmpty() {
+        return storage.size == 0;
+    }
+
+    public void push(Value value) {
+        if (storage.refs > 1)
+            unshare();
+
+        grow();
+        int i = storage.size++;
+        if (storage.ints != null) {
+            int[] h = storage.ints;
+            int x = (Integer) value.data;
+            while (i > 0 && before(x, h[(i - 1) >>> 1])) {
+                h[i] = h[(i - 1) >>> 1];
+                i = (i - 1) >>> 1;
+            }
+            h[i] = x;
+        } else if (storage.floats != null) {
+            float[] h = storage.floats;
+            float x = (Float) value.data;
+            while (i > 0 && before(x, h[(i - 1) >>> 1])) {
+                h[i] = h[(i - 1) >>> 1];
+                i = (i - 1) >>> 1;
+            }
+            h[i] = x;
+        } else {
+            // A String that is appended to later must not change here.
+            Value held = value.hold();
+            Value[] h = storage.values;
+            while (i > 0 && before(held, h[(i - 1) >>> 1])) {
+                h[i] = h[(i - 1) >>> 1];
+                i = (i - 1) >>> 1;
+            }
+            h[i] = held;
+        }
+    }
+
+    // The heap must not be empty.
+    public Value peek() {
+        if (storage.ints != null)
+            return Value.of(storage.ints[0]);
+        else if (storage.floats != null)
+            return new Value(FloatType.instance(), storage.floats[0]);
+        else
+            return storage.values[0];
+    }
+
+    // The heap must not be empty.
+    public Value pop() {
+        if (storage.refs > 1)
+            unshare();
+
+        Value top = peek();
+        int n = --storage.size;
+        if (storage.ints != null) {
+            int[] h = storage.ints;
+            int x = h[n];
+            int i = 0;
+            for (int c = 1; c < n; i = c, c = 2 * i + 1) {
+                if (c + 1 < n && before(h[c + 1], h[c]))
+                    c++;
+                if (!before(h[c], x))
+                    break;
+                h[i] = h[c];
+            }
+            h[i] = x;
+        } else if (storage.floats != null) {
+            float[] h = storage.floats;
+            float x = h[n];
+            int i = 0;
+            for (int c = 1; c < n; i = c, c = 2 * i + 1) {
+                if (c + 1 < n && before(h[c + 1], h[c]))
+                    c++;
+                if (!before(h[c], x))
+                    break;
+                h[i] = h[c];
+            }
+            h[i] = x;
+        } else {
+            Value[] h = storage.values;
+            Value x = h[n];
+            h[n] = null;
+            int i = 0;
+            for (int c = 1; c < n; i = c, c = 2 * i + 1) {
+                if (c + 1 < n && before(h[c + 1], h[c]))
+                    c++;
+                if (!before(h[c], x))
+                    break;
+                h[i] = h[c];
+            }
+            if (n > 0)
+                h[i] = x;
+        }
+
+        return top;
+    }
+
+    // Iterates a sorted snapshot, so a loop sees the elements in the
+    // order pop() would return them without changing the heap.
+    @Override
+    public Iterator<Value> iterator() {
+        int n = storage.size;
+        Value[] sorted = new Value[n];
+        if (storage.ints != null) {
+            int[] a = Arrays.copyOf(storage.ints, n);
+            Arrays.sort(a);
+            for (int i = 0; i < n; i++)
+                sorted[max ? n - 1 - i : i] = Value.of(a[i]);
+        } else if (storage.floats != null) {
+            float[] a = Arrays.copyOf(storage.floats, n);
+            Arrays.sort(a);
+            for (int i = 0; i < n; i++)
+                sorted[max ? n - 1 - i : i] = new Value(FloatType.instance(), a[i]);
+        } else {
+            Value[] a = Arrays.copyOf(storage.values, n);
+            Arrays.sort(a, NATURAL);
+            for (int i = 0; i < n; i++)
+                sorted[max ? n - 1 - i : i] = a[i];
+        }
+
+        return Arrays.asList(sorted).iterator();
+    }
+
+    @Override
+    public HeapData share() {
+        storage.refs++;
+        HeapData data = new HeapData(storage, max);
+        data.claim();
+        return data;
+    }
+
+    @Override
+    public void release() {
+        storage.refs--;
+    }
+
+    private boolean before(int a, int b) {
+        return max ? a > b : a < b;
+    }
+
+    private boolean before(float a, float b) {
+        return max ? Float.compare(a, b) > 0 : Float.compare(a, b) < 0;
+    }
+
+    private boolean before(Value a, Value b) {
+        int c = NATURAL.compare(a, b);
+        return max ? c > 0 : c < 0;
+    }
+
+    private void grow() {
+        int n = storage.size;
+        if (storage.ints != null && n == storage.ints.length)
+            storage.ints = Arrays.copyOf(storage.ints, n * 2);
+        else if (storage.floats != null && n == storage.floats.length)
+            storage.floats = Arrays.copyOf(storage.floats, n * 2);
+        else if (storage.values != null && n == storage.values.length)
+            storage.values = Arrays.copyOf(storage.values, n * 2);
+    }
+
+    private void unshare() {
+        Storage old = storage;
+        storage = new Storage(
+            old.ints != null ? old.ints.clone() : null,
+            old.floats != null ? old.floats.clone() : null,
+            old.values != null ? old.values.clone() : null,
+            old.size);
+        old.refs--;
+    }
+
+    @Override
+    public String toString() {
+        StringBuffer sb = new StringBuffer().append("[");
+        boolean first = true;
+        for (Value v : this) {
+            if (!first)
+                sb.append(", ");
+            sb.append(v);
+            first = false;
+        }
+
+        return sb.append("]").toString();
+    }
+
+}
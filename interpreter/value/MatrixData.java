@@ -0,0 +1,206 @@
+package interpreter.value;
+
+import java.util.Arrays;
+
+import interpreter.type.primitive.FloatType;
+
+// A rows x cols matrix of Int or Float stored row-major in one flat
+// primitive array. Handles share the storage like ArrayData does, and a
+// row is a view over a contiguous window of it.
+public class MatrixData extends SharedData {
+
+    private static final int BLOCK = 64;
+
+    private static class Storage {
+        int[] ints;
+        float[] floats;
+        int refs;
+
+        Storage(int[] ints, float[] floats) {
+            this.ints = ints;
+            this.floats = floats;
+            this.refs = 1;
+        }
+    }
+
+    private Storage storage;
+    private int offset;
+    private int rows;
+    private int cols;
+
+    private MatrixData(Storage storage, int offset, int rows, int cols) {
+        this.storage = storage;
+        this.offset = offset;
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    // Both throw ArithmeticException when rows * cols does not fit in an
+    // int; every other product of the dimensions is bounded by this one.
+    public static MatrixData ofInts(int rows, int cols) {
+        return new MatrixData(new Storage(new int[Math.multiplyExact(rows, cols)], null), 0, rows, cols);
+    }
+
+    public static MatrixData ofFloats(int rows, int cols) {
+        return new MatrixData(new Storage(null, new float[Math.multiplyExact(rows, cols)]), 0, rows, cols);
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    public int size() {
+        return rows * cols;
+    }
+
+    public Value get(int i, int j) {
+        int k = offset + i * cols + j;
+        if (storage.ints != null)
+            return Value.of(storage.ints[k]);
+        else
+            return new Value(FloatType.instance(), storage.floats[k]);
+    }
+
+    public void set(int i, int j, Value value) {
+        if (storage.refs > 1)
+            unshare();
+
+        int k = offset + i * cols + j;
+        if (storage.ints != null)
+            storage.ints[k] = (Integer) value.data;
+        else
+            storage.floats[k] = (Float) value.data;
+    }
+
+    public MatrixData row(int i) {
+        storage.refs++;
+        return new MatrixData(storage, offset + i * cols, 1, cols);
+    }
+
+    // Copies square tiles so that both the reads and the writes stay
+    // within a few cache lines.
+    public MatrixData transpose() {
+        MatrixData t = storage.ints != null ? ofInts(cols, rows) : ofFloats(cols, rows);
+        for (int ii = 0; ii < rows; ii += BLOCK) {
+            for (int jj = 0; jj < cols; jj += BLOCK) {
+                int iend = Math.min(ii + BLOCK, rows);
+                int jend = Math.min(jj + BLOCK, cols);
+                for (int i = ii; i < iend; i++) {
+                    int src = offset + i * cols;
+                    for (int j = jj; j < jend; j++) {
+                        if (storage.ints != null)
+                            t.storage.ints[j * rows + i] = storage.ints[src + j];
+                        else
+                            t.storage.floats[j * rows + i] = storage.floats[src + j];
+                    }
+                }
+            }
+        }
+
+        return t;
+    }
+
+    // Blocked i-k-j product: the innermost loop walks a row of other and
+    // a row of the result, both contiguous. The caller checks the shapes.
+    public MatrixData multiply(MatrixData other) {
+        int n = rows, m = cols, p = other.cols;
+        if (storage.ints != null) {
+            MatrixData c = ofInts(n, p);
+            int[] a = storage.ints, b = other.storage.ints, r = c.storage.ints;
+            for (int ii = 0; ii < n; ii += BLOCK) {
+                for (int kk = 0; kk < m; kk += BLOCK) {
+                    for (int jj = 0; jj < p; jj += BLOCK) {
+                        int iend = Math.min(ii + BLOCK, n);
+                        int kend = Math.min(kk + BLOCK, m);
+                        int jend = Math.min(jj + BLOCK, p);
+                        for (int i = ii; i < iend; i++) {
+                            for (int k = kk; k < kend; k++) {
+                                int x = a[offset + i * m + k];
+                                int brow = other.offset + k * p;
+                                for (int j = jj; j < jend; j++)
+                                    r[i * p + j] += x * b[brow + j];
+                            }
+                        }
+                    }
+                }
+            }
+
+            return c;
+        } else {
+            MatrixData c = ofFloats(n, p);
+            float[] a = storage.floats, b = other.storage.floats, r = c.storage.floats;
+            for (int ii = 0; ii < n; ii += BLOCK) {
+                for (int kk = 0; kk < m; kk += BLOCK) {
+                    for (int jj = 0; jj < p; jj += BLOCK) {
+                        int iend = Math.min(ii + BLOCK, n);
+                        int kend = Math.min(kk + BLOCK, m);
+                        int jend = Math.min(jj + BLOCK, p);
+                        for (int i = ii; i < iend; i++) {
+                            for (int k = kk; k < kend; k++) {
+                                float x = a[offset + i * m + k];
+                                int brow = other.offset + k * p;
+                                for (int j = jj; j < jend; j++)
+                                    r[i * p + j] += x * b[brow + j];
+                            }
+                        }
+                    }
+                }
+            }
+
+            return c;
+        }
+    }
+
+    @Override
+    public MatrixData share() {
+        storage.refs++;
+        MatrixData data = new MatrixData(storage, offset, rows, cols);
+        data.claim();
+        return data;
+    }
+
+    @Override
+    public void release() {
+        storage.refs--;
+    }
+
+    private void unshare() {
+        int n = rows * cols;
+        storage.refs--;
+        if (storage.ints != null)
+            storage = new Storage(Arrays.copyOfRange(storage.ints, offset, offset + n), null);
+        else
+            storage = new Storage(null, Arrays.copyOfRange(storage.floats, offset, offset + n));
+
+        offset = 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuffer sb = new StringBuffer().append("[");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0)
+                sb.append(", ");
+
+            sb.append("[");
+            for (int j = 0; j < cols; j++) {
+                if (j > 0)
+                    sb.append(", ");
+
+                int k = offset + i * cols + j;
+                if (storage.ints != null)
+                    sb.append(storage.ints[k]);
+                else
+                    sb.append(storage.floats[k]);
+            }
+            sb.append("]");
+        }
+
+        return sb.append("]").toString();
+    }
+
+}
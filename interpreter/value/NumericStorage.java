@@ -0,0 +1,37 @@
+package interpreter.value;
+
+// Int or Float elements held as primitives instead of boxed Values. Like
+// ArrayData's Storage it is shared by every handle and view over it;
+// refs counts them, and a handle that writes into a storage with
+// refs > 1 copies its own window first.
+abstract class NumericStorage {
+
+    final boolean floats;
+    int size;
+    int refs;
+
+    NumericStorage(int size, boolean floats) {
+        this.size = size;
+        this.floats = floats;
+        this.refs = 1;
+    }
+
+    abstract Value get(int i);
+
+    abstract void set(int i, Value value);
+
+    // Bulk copy of elements [from, from + dst.length) as raw 4-byte
+    // values: ints, or floats as their Float.floatToRawIntBits.
+    abstract void getBits(int from, int[] dst);
+
+    abstract void getFloats(int from, float[] dst);
+
+    // Copy of a window, used when a shared storage is written.
+    abstract NumericStorage copy(int from, int length);
+
+    void release() {
+        if (refs > 0)
+            refs--;
+    }
+
+}
@@ -0,0 +1,100 @@
+package interpreter.value;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import interpreter.type.primitive.FloatType;
+
+// Fixed-size Int or Float elements kept outside the Java heap, in direct
+// buffers of CHUNK elements each so that arrays may exceed 2 GB. The
+// memory is freed by the garbage collector's cleaner once no handle can
+// reach it; release only lowers the count of handles sharing it.
+class OffHeapStorage extends NumericStorage {
+
+    private static final int CHUNK_SHIFT = 26;
+    private static final int CHUNK = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK - 1;
+
+    private final ByteBuffer[] chunks;
+
+    OffHeapStorage(int size, boolean floats) {
+        super(size, floats);
+
+        int n = (int) (((long) size + CHUNK - 1) >>> CHUNK_SHIFT);
+        chunks = new ByteBuffer[n];
+        for (int i = 0; i < n; i++) {
+            int elements = Math.min(CHUNK, size - (i << CHUNK_SHIFT));
+            chunks[i] = ByteBuffer.allocateDirect(elements * 4).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    @Override
+    Value get(int i) {
+        ByteBuffer chunk = chunks[i >>> CHUNK_SHIFT];
+        int pos = (i & CHUNK_MASK) << 2;
+        if (floats)
+            return new Value(FloatType.instance(), chunk.getFloat(pos));
+        else
+            return Value.of(chunk.getInt(pos));
+    }
+
+    @Override
+    void set(int i, Value value) {
+        ByteBuffer chunk = chunks[i >>> CHUNK_SHIFT];
+        int pos = (i & CHUNK_MASK) << 2;
+        if (floats)
+            chunk.putFloat(pos, (Float) value.data);
+        else
+            chunk.putInt(pos, (Integer) value.data);
+    }
+
+    // Fills the storage from raw 4-byte elements: ints, or floats as
+    // their Float.floatToRawIntBits.
+    void putBits(int[] bits) {
+        for (int i = 0; i < chunks.length; i++) {
+            int from = i << CHUNK_SHIFT;
+            chunks[i].asIntBuffer().put(bits, from, Math.min(CHUNK, size - from));
+        }
+    }
+
+    @Override
+    void getBits(int from, int[] dst) {
+        for (int i = 0; i < dst.length; ) {
+            int src = from + i;
+            int n = Math.min(dst.length - i, CHUNK - (src & CHUNK_MASK));
+            chunks[src >>> CHUNK_SHIFT].asIntBuffer().get(src & CHUNK_MASK, dst, i, n);
+            i += n;
+        }
+    }
+
+    @Override
+    void getFloats(int from, float[] dst) {
+        for (int i = 0; i < dst.length; ) {
+            int src = from + i;
+            int n = Math.min(dst.length - i, CHUNK - (src & CHUNK_MASK));
+            chunks[src >>> CHUNK_SHIFT].asFloatBuffer().get(src & CHUNK_MASK, dst, i, n);
+            i += n;
+        }
+    }
+
+    void putFloats(float[] src) {
+        for (int i = 0; i < chunks.length; i++) {
+            int from = i << CHUNK_SHIFT;
+            chunks[i].asFloatBuffer().put(src, from, Math.min(CHUNK, size - from));
+        }
+    }
+
+    // Raw 4-byte copy of the window.
+    @Override
+    OffHeapStorage copy(int from, int length) {
+        OffHeapStorage copy = new OffHeapStorage(length, floats);
+        for (int i = 0; i < length; i++) {
+            int src = from + i;
+            int bits = chunks[src >>> CHUNK_SHIFT].getInt((src & CHUNK_MASK) << 2);
+            copy.chunks[i >>> CHUNK_SHIFT].putInt((i & CHUNK_MASK) << 2, bits);
+        }
+
+        return copy;
+    }
+
+}
@@ -0,0 +1,77 @@
+package interpreter.value;
+
+import java.util.Arrays;
+
+import interpreter.type.primitive.FloatType;
+
+// Int or Float elements on the Java heap, in a growable int[] or float[],
+// so the numeric kernels copy them in and out in bulk without boxing.
+class PrimitiveStorage extends NumericStorage {
+
+    private int[] ints;
+    private float[] values;
+
+    PrimitiveStorage(int[] ints, int size) {
+        super(size, false);
+        this.ints = ints;
+    }
+
+    PrimitiveStorage(float[] values, int size) {
+        super(size, true);
+        this.values = values;
+    }
+
+    @Override
+    Value get(int i) {
+        if (floats)
+            return new Value(FloatType.instance(), values[i]);
+        else
+            return Value.of(ints[i]);
+    }
+
+    @Override
+    void set(int i, Value value) {
+        if (floats)
+            values[i] = (Float) value.data;
+        else
+            ints[i] = (Integer) value.data;
+    }
+
+    void append(Value value) {
+        int capacity = floats ? values.length : ints.length;
+        if (size == capacity) {
+            capacity = Math.max(8, size * 2);
+            if (floats)
+                values = Arrays.copyOf(values, capacity);
+            else
+                ints = Arrays.copyOf(ints, capacity);
+        }
+
+        set(size++, value);
+    }
+
+    @Override
+    void getBits(int from, int[] dst) {
+        if (!floats) {
+            System.arraycopy(ints, from, dst, 0, dst.length);
+            return;
+        }
+
+        for (int i = 0; i < dst.length; i++)
+            dst[i] = Float.floatToRawIntBits(values[from + i]);
+    }
+
+    @Override
+    void getFloats(int from, float[] dst) {
+        System.arraycopy(values, from, dst, 0, dst.length);
+    }
+
+    @Override
+    PrimitiveStorage copy(int from, int length) {
+        if (floats)
+            return new PrimitiveStorage(Arrays.copyOfRange(values, from, from + length), length);
+        else
+            return new PrimitiveStorage(Arrays.copyOfRange(ints, from, from + length), length);
+    }
+
+}
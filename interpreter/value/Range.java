@@ -0,0 +1,53 @@
+package interpreter.value;
+
+public class Range {
+
+    public final int from;
+    public final int to;
+    public final int step;
+    public final boolean inclusive;
+
+    public Range(int from, int to, int step, boolean inclusive) {
+        assert step != 0;
+
+        this.from = from;
+        this.to = to;
+        this.step = step;
+        this.inclusive = inclusive;
+    }
+
+    // Throws ArithmeticException when the range has more elements than
+    // an int can count, as 0...2147483647 does.
+    public int count() {
+        long end = inclusive ? (step > 0 ? to + 1L : to - 1L) : to;
+        long n;
+        if (step > 0)
+            n = from >= end ? 0 : (end - from + step - 1) / step;
+        else
+            n = from <= end ? 0 : (from - end - step - 1) / -(long) step;
+
+        return Math.toIntExact(n);
+    }
+
+    public int get(int i) {
+        return from + i * step;
+    }
+
+    // Index bound of the range when used as a slice: [from, end).
+    public long end() {
+        return inclusive ? to + 1L : to;
+    }
+
+    @Override
+    public String toString() {
+        StringBuffer sb = new StringBuffer()
+            .append(from)
+            .append(inclusive ? "..." : "..<")
+            .append(to);
+        if (step != 1)
+            sb.append(" by ").append(step);
+
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,126 @@
+package interpreter.value;
+
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+// A lazy sequence: a source plus a chain of map/filter/take stages.
+// Nothing runs until forEach is called, and then every element flows
+// through all stages before the next one is pulled, so no intermediate
+// collection is ever built.
+public class SeqData {
+
+    // Receives the elements of a sequence; returning false stops it.
+    public interface Sink {
+        boolean accept(Value value);
+    }
+
+    private final Iterable<Value> source;
+    private final SeqData upstream;
+    private final Function<Sink, Sink> stage;
+
+    public SeqData(Iterable<Value> source) {
+        this.source = source;
+        this.upstream = null;
+        this.stage = null;
+    }
+
+    private SeqData(SeqData upstream, Function<Sink, Sink> stage) {
+        this.source = null;
+        this.upstream = upstream;
+        this.stage = stage;
+    }
+
+    public static SeqData of(final CharSequence cs) {
+        return new SeqData(() -> new Iterator<Value>() {
+            private int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return i < cs.length();
+            }
+
+            @Override
+            public Value next() {
+                return Value.of(cs.charAt(i++));
+            }
+        });
+    }
+
+    // Counts the range up front, so a range too large to count fails here
+    // rather than when the sequence is first run.
+    public static SeqData of(final Range range) {
+        final int n = range.count();
+        return new SeqData(() -> new Iterator<Value>() {
+            private int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return i < n;
+            }
+
+            @Override
+            public Value next() {
+                return Value.of(range.get(i++));
+            }
+        });
+    }
+
+    public SeqData map(final Function<Value, Value> f) {
+        return new SeqData(this, down -> v -> down.accept(f.apply(v)));
+    }
+
+    public SeqData filter(final Predicate<Value> p) {
+        return new SeqData(this, down -> v -> !p.test(v) || down.accept(v));
+    }
+
+    // The counter is created per evaluation, so the sequence can be
+    // consumed more than once.
+    public SeqData take(final int n) {
+        return new SeqData(this, down -> new Sink() {
+            private int left = n;
+
+            @Override
+            public boolean accept(Value v) {
+                if (left <= 0)
+                    return false;
+
+                left--;
+                return down.accept(v) && left > 0;
+            }
+        });
+    }
+
+    public void forEach(Sink sink) {
+        SeqData head = this;
+        while (head.upstream != null) {
+            sink = head.stage.apply(sink);
+            head = head.upstream;
+        }
+
+        Iterator<Value> it = head.source.iterator();
+        try {
+            while (it.hasNext()) {
+                if (!sink.accept(it.next()))
+                    break;
+            }
+        } finally {
+            if (it instanceof SharedData.Cursor)
+                ((SharedData.Cursor) it).close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuffer sb = new StringBuffer().append("[");
+        forEach(v -> {
+            if (sb.length() > 1)
+                sb.append(", ");
+            sb.append(v);
+            return true;
+        });
+
+        return sb.append("]").toString();
+    }
+
+}
@@ -0,0 +1,314 @@
+package interpreter.value;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+
+// Sets of Char, and of Int while every element lies in [0, BITSET_LIMIT),
+// are kept as a long[] bitset so that membership is a single bit test and
+// union/intersection/difference run a word at a time. Any other set, or an
+// Int set that receives an element outside that range, uses a hash set.
+public class SetData extends SharedData implements Iterable<Value> {
+
+    public static final int BITSET_LIMIT = 1 << 16;
+
+    private static class Storage {
+        long[] words;
+        LinkedHashSet<Value> set;
+        int size;
+        int refs;
+
+        Storage(long[] words, LinkedHashSet<Value> set, int size) {
+            this.words = words;
+            this.set = set;
+            this.size = size;
+            this.refs = 1;
+        }
+    }
+
+    private Storage storage;
+    private final boolean chars;
+
+    private SetData(Storage storage, boolean chars) {
+        this.storage = storage;
+        this.chars = chars;
+    }
+
+    // bitset: the element type is Int or Char; chars: it is Char.
+    public SetData(boolean bitset, boolean chars) {
+        this(bitset ? new Storage(new long[0], null, 0) : new Storage(null, new LinkedHashSet<>(), 0), chars);
+    }
+
+    public int size() {
+        return storage.size;
+    }
+
+    public boolean isEmpty() {
+        return storage.size == 0;
+    }
+
+    public boolean contains(Value value) {
+        if (storage.words == null)
+            return storage.set.contains(value);
+
+        int bit = bit(value);
+        if (bit < 0 || bit >= storage.words.length * 64)
+            return false;
+
+        return (storage.words[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    public boolean insert(Value value) {
+        if (storage.refs > 1)
+            unshare();
+
+        if (storage.words != null) {
+            int bit = bit(value);
+            if (bit < 0 || bit >= BITSET_LIMIT) {
+                toHashSet();
+            } else {
+                if (bit >= storage.words.length * 64)
+                    storage.words = Arrays.copyOf(storage.words,
+                        Math.max((bit >>> 6) + 1, storage.words.length * 2));
+
+                long mask = 1L << bit;
+                if ((storage.words[bit >>> 6] & mask) != 0)
+                    return false;
+
+                storage.words[bit >>> 6] |= mask;
+                storage.size++;
+                return true;
+            }
+        }
+
+        if (storage.set.contains(value))
+            return false;
+
+        storage.set.add(value.hold());
+        storage.size++;
+        return true;
+    }
+
+    public boolean remove(Value value) {
+        if (!contains(value))
+            return false;
+
+        if (storage.refs > 1)
+            unshare();
+
+        if (storage.words != null) {
+            int bit = bit(value);
+            storage.words[bit >>> 6] &= ~(1L << bit);
+        } else if (!(value.data instanceof SharedData)) {
+            storage.set.remove(value);
+        } else {
+            // The stored handle, not the argument, is the one to release.
+            for (Iterator<Value> it = storage.set.iterator(); it.hasNext(); ) {
+                Value v = it.next();
+                if (v.equals(value)) {
+                    it.remove();
+                    v.release();
+                    break;
+                }
+            }
+        }
+
+        storage.size--;
+        return true;
+    }
+
+    public SetData union(SetData other) {
+        if (storage.words != null && other.storage.words != null) {
+            long[] a = storage.words, b = other.storage.words;
+            long[] r = Arrays.copyOf(a.length >= b.length ? a : b, Math.max(a.length, b.length));
+            for (int i = 0, n = Math.min(a.length, b.length); i < n; i++)
+                r[i] = a[i] | b[i];
+
+            return bitset(r);
+        }
+
+        SetData result = copy();
+        for (Value v : other)
+            result.insert(v);
+
+        return result;
+    }
+
+    public SetData intersection(SetData other) {
+        if (storage.words != null && other.storage.words != null) {
+            long[] a = storage.words, b = other.storage.words;
+            long[] r = new long[Math.min(a.length, b.length)];
+            for (int i = 0; i < r.length; i++)
+                r[i] = a[i] & b[i];
+
+            return bitset(r);
+        }
+
+        SetData result = new SetData(storage.words != null, chars);
+        for (Value v : this) {
+            if (other.contains(v))
+                result.insert(v);
+        }
+
+        return result;
+    }
+
+    public SetData difference(SetData other) {
+        if (storage.words != null && other.storage.words != null) {
+            long[] a = storage.words, b = other.storage.words;
+            long[] r = Arrays.copyOf(a, a.length);
+            for (int i = 0, n = Math.min(a.length, b.length); i < n; i++)
+                r[i] = a[i] & ~b[i];
+
+            return bitset(r);
+        }
+
+        SetData result = new SetData(storage.words != null, chars);
+        for (Value v : this) {
+            if (!other.contains(v))
+                result.insert(v);
+        }
+
+        return result;
+    }
+
+    // Like ArrayData.iterator(), pins the storage until the loop is over.
+    @Override
+    public Iterator<Value> iterator() {
+        final Storage pinned = storage;
+        pinned.refs++;
+
+        if (pinned.words == null) {
+            final Iterator<Value> it = pinned.set.iterator();
+            return new Cursor() {
+                @Override
+                protected boolean more() {
+                    return it.hasNext();
+                }
+
+                @Override
+                protected void unpin() {
+                    pinned.refs--;
+                }
+
+                @Override
+                public Value next() {
+                    return it.next();
+                }
+            };
+        }
+
+        return new Cursor() {
+            private int next = nextBit(pinned.words, 0);
+
+            @Override
+            protected boolean more() {
+                return next >= 0;
+            }
+
+            @Override
+            protected void unpin() {
+                pinned.refs--;
+            }
+
+            @Override
+            public Value next() {
+                if (next < 0)
+                    throw new NoSuchElementException();
+
+                int bit = next;
+                next = nextBit(pinned.words, bit + 1);
+                return chars ? Value.of((char) bit) : Value.of(bit);
+            }
+        };
+    }
+
+    @Override
+    public SetData share() {
+        storage.refs++;
+        SetData data = new SetData(storage, chars);
+        data.claim();
+        return data;
+    }
+
+    @Override
+    public void release() {
+        storage.refs--;
+    }
+
+    private SetData bitset(long[] words) {
+        int size = 0;
+        for (long w : words)
+            size += Long.bitCount(w);
+
+        return new SetData(new Storage(words, null, size), chars);
+    }
+
+    private SetData copy() {
+        storage.refs++;
+        SetData data = new SetData(storage, chars);
+        data.unshare();
+        return data;
+    }
+
+    private int bit(Value value) {
+        return chars ? (Character) value.data : (Integer) value.data;
+    }
+
+    private static int nextBit(long[] words, int from) {
+        int i = from >>> 6;
+        if (i >= words.length)
+            return -1;
+
+        long w = words[i] & (-1L << from);
+        while (true) {
+            if (w != 0)
+                return i * 64 + Long.numberOfTrailingZeros(w);
+
+            if (++i == words.length)
+                return -1;
+
+            w = words[i];
+        }
+    }
+
+    private void toHashSet() {
+        LinkedHashSet<Value> set = new LinkedHashSet<>(storage.size * 4 / 3 + 16);
+        for (int bit = nextBit(storage.words, 0); bit >= 0; bit = nextBit(storage.words, bit + 1))
+            set.add(chars ? Value.of((char) bit) : Value.of(bit));
+
+        storage.words = null;
+        storage.set = set;
+    }
+
+    private void unshare() {
+        Storage old = storage;
+        if (old.words != null) {
+            storage = new Storage(Arrays.copyOf(old.words, old.words.length), null, old.size);
+        } else {
+            LinkedHashSet<Value> set = new LinkedHashSet<>(old.set.size() * 4 / 3 + 16);
+            for (Value v : old.set)
+                set.add(v.hold());
+
+            storage = new Storage(null, set, old.size);
+        }
+
+        old.refs--;
+    }
+
+    @Override
+    public String toString() {
+        StringBuffer sb = new StringBuffer().append("[");
+        boolean first = true;
+        for (Value v : this) {
+            if (!first)
+                sb.append(", ");
+            sb.append(v);
+            first = false;
+        }
+
+        return sb.append("]").toString();
+    }
+
+}
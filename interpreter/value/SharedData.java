@@ -0,0 +1,52 @@
+package interpreter.value;
+
+import java.util.Iterator;
+
+// Base for container data with value semantics. Every variable or
+// container slot holds its own handle, and handles over the same storage
+// copy it on their first write while it is still shared.
+public abstract class SharedData {
+
+    // Iterator over a pinned storage. The pin is dropped when the
+    // iteration runs out, or by close() when a consumer stops early.
+    public abstract static class Cursor implements Iterator<Value> {
+        private boolean done = false;
+
+        protected abstract boolean more();
+
+        protected abstract void unpin();
+
+        @Override
+        public final boolean hasNext() {
+            if (more())
+                return true;
+
+            close();
+            return false;
+        }
+
+        public void close() {
+            if (!done) {
+                unpin();
+                done = true;
+            }
+        }
+    }
+
+    private boolean owned;
+
+    // A fresh handle (e.g. the result of an array literal) is taken over
+    // by its first holder; any further holder gets a handle of its own.
+    boolean claim() {
+        if (owned)
+            return false;
+
+        owned = true;
+        return true;
+    }
+
+    public abstract SharedData share();
+
+    public abstract void release();
+
+}
@@ -0,0 +1,268 @@
+package interpreter.value;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+
+// Dictionary kept in key order by a B+ tree, so lookups, updates and
+// floor/ceiling queries are O(log n). A range view d[lo..<hi] shares the
+// tree of the dict it came from and only sees the keys in range.
+public class SortedDictData extends SharedData implements Iterable<Value> {
+
+    // Keys are Int, Float, Char or String, all of one type per dict.
+    private static final Comparator<Value> KEY_ORDER = (a, b) -> {
+        if (a.data instanceof Integer)
+            return Integer.compare((Integer) a.data, (Integer) b.data);
+        else if (a.data instanceof Float)
+            return Float.compare((Float) a.data, (Float) b.data);
+        else if (a.data instanceof Character)
+            return Character.compare((Character) a.data, (Character) b.data);
+        else
+            return CharSequence.compare((CharSequence) a.data, (CharSequence) b.data);
+    };
+
+    private static class Storage {
+        BTree tree;
+        int refs;
+
+        Storage(BTree tree) {
+            this.tree = tree;
+            this.refs = 1;
+        }
+    }
+
+    private Storage storage;
+
+    // Bounds of a range view; both null for the whole dict.
+    private Value lo;
+    private Value hi;
+    private boolean hiInclusive;
+
+    public SortedDictData() {
+        this(new Storage(new BTree(KEY_ORDER)), null, null, false);
+    }
+
+    private SortedDictData(Storage storage, Value lo, Value hi, boolean hiInclusive) {
+        this.storage = storage;
+        this.lo = lo;
+        this.hi = hi;
+        this.hiInclusive = hiInclusive;
+    }
+
+    private boolean isView() {
+        return lo != null;
+    }
+
+    private Iterator<Map.Entry<Value, Value>> scan() {
+        return storage.tree.entries(lo, hi, hiInclusive);
+    }
+
+    // Views count their keys; the whole tree keeps a running size.
+    public int size() {
+        if (!isView())
+            return storage.tree.size();
+
+        int n = 0;
+        for (Iterator<Map.Entry<Value, Value>> it = scan(); it.hasNext(); it.next())
+            n++;
+
+        return n;
+    }
+
+    public boolean isEmpty() {
+        return !scan().hasNext();
+    }
+
+    public boolean inRange(Value key) {
+        if (!isView())
+            return true;
+
+        int c = KEY_ORDER.compare(key, hi);
+        return KEY_ORDER.compare(key, lo) >= 0 && (hiInclusive ? c <= 0 : c < 0);
+    }
+
+    public boolean containsKey(Value key) {
+        return inRange(key) && storage.tree.get(key) != null;
+    }
+
+    public Value get(Value key) {
+        return inRange(key) ? storage.tree.get(key) : null;
+    }
+
+    public Value getForUpdate(Value key) {
+        if (storage.refs > 1)
+            unshare();
+
+        return get(key);
+    }
+
+    // Writing a key outside its range turns a view into a dict of its own.
+    public void put(Value key, Value value) {
+        Value held = value.hold();
+        if (storage.refs > 1 || !inRange(key))
+            unshare();
+
+        // The key is held too: a String key appended to later must not
+        // change inside the tree and break its order.
+        Value old = storage.tree.put(key.hold(), held);
+        if (old != null)
+            old.release();
+    }
+
+    public boolean remove(Value key) {
+        if (!containsKey(key))
+            return false;
+
+        if (storage.refs > 1)
+            unshare();
+
+        storage.tree.remove(key).release();
+        return true;
+    }
+
+    public Value floorKey(Value key) {
+        if (!isView())
+            return storage.tree.floorKey(key, true);
+
+        int c = KEY_ORDER.compare(key, hi);
+        Value k = c < 0 || (c == 0 && hiInclusive)
+            ? storage.tree.floorKey(key, true)
+            : storage.tree.floorKey(hi, hiInclusive);
+        return k != null && KEY_ORDER.compare(k, lo) >= 0 ? k : null;
+    }
+
+    public Value ceilingKey(Value key) {
+        if (!isView())
+            return storage.tree.ceilingKey(key);
+
+        Value k = storage.tree.ceilingKey(KEY_ORDER.compare(key, lo) < 0 ? lo : key);
+        return k != null && inRange(k) ? k : null;
+    }
+
+    // Keys lo <= k < hi (or <= hi); nothing is copied until one side writes.
+    public SortedDictData range(Value from, Value to, boolean toInclusive) {
+        if (isView()) {
+            if (KEY_ORDER.compare(from, lo) < 0)
+                from = lo;
+
+            int c = KEY_ORDER.compare(to, hi);
+            if (c > 0 || (c == 0 && !hiInclusive)) {
+                to = hi;
+                toInclusive = hiInclusive;
+            }
+        }
+
+        if (KEY_ORDER.compare(from, to) > 0) {
+            to = from;
+            toInclusive = false;
+        }
+
+        storage.refs++;
+        return new SortedDictData(storage, from, to, toInclusive);
+    }
+
+    public Iterable<Value> keys() {
+        return () -> new Iterator<Value>() {
+            private final Iterator<Map.Entry<Value, Value>> it = scan();
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Value next() {
+                return it.next().getKey();
+            }
+        };
+    }
+
+    public Iterable<Value> values() {
+        return () -> new Iterator<Value>() {
+            private final Iterator<Map.Entry<Value, Value>> it = scan();
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Value next() {
+                return it.next().getValue();
+            }
+        };
+    }
+
+    public Iterable<Map.Entry<Value, Value>> entries() {
+        return this::scan;
+    }
+
+    // Iterates the keys in order over a pinned storage.
+    @Override
+    public Iterator<Value> iterator() {
+        final Storage pinned = storage;
+        final Iterator<Map.Entry<Value, Value>> it = scan();
+        pinned.refs++;
+
+        return new Cursor() {
+            @Override
+            protected boolean more() {
+                return it.hasNext();
+            }
+
+            @Override
+            protected void unpin() {
+                pinned.refs--;
+            }
+
+            @Override
+            public Value next() {
+                return it.next().getKey();
+            }
+        };
+    }
+
+    @Override
+    public SortedDictData share() {
+        storage.refs++;
+        SortedDictData data = new SortedDictData(storage, lo, hi, hiInclusive);
+        data.claim();
+        return data;
+    }
+
+    @Override
+    public void release() {
+        storage.refs--;
+    }
+
+    // A view that is written to becomes a dict of its own, holding only
+    // the keys in its range.
+    private void unshare() {
+        // Keys arrive in order, so each insert lands in the rightmost leaf.
+        BTree tree = new BTree(KEY_ORDER);
+        for (Iterator<Map.Entry<Value, Value>> it = scan(); it.hasNext();) {
+            Map.Entry<Value, Value> e = it.next();
+            tree.put(e.getKey(), e.getValue().hold());
+        }
+
+        storage.refs--;
+        storage = new Storage(tree);
+        lo = null;
+        hi = null;
+    }
+
+    @Override
+    public String toString() {
+        StringBuffer sb = new StringBuffer().append("[");
+        boolean first = true;
+        for (Map.Entry<Value, Value> e : entries()) {
+            if (!first)
+                sb.append(", ");
+            sb.append(e.getKey()).append(": ").append(e.getValue());
+            first = false;
+        }
+
+        return sb.append(first ? ":]" : "]").toString();
+    }
+
+}
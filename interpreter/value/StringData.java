@@ -0,0 +1,98 @@
+package interpreter.value;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+// Growable text used once a String value is appended to, so repeated
+// appends are amortized O(1). Shared between handles like ArrayData;
+// characters already written are never changed, only added after.
+public class StringData extends SharedData implements CharSequence {
+
+    private static class Storage {
+        char[] chars;
+        int refs;
+
+        Storage(char[] chars) {
+            this.chars = chars;
+            this.refs = 1;
+        }
+    }
+
+    private Storage storage;
+    private int length;
+
+    public StringData(CharSequence cs, int capacity) {
+        this(new Storage(new char[Math.max(16, capacity)]), 0);
+        append(cs);
+    }
+
+    private StringData(Storage storage, int length) {
+        this.storage = storage;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return storage.chars[index];
+    }
+
+    // The returned window stays valid: later appends only write past it.
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return CharBuffer.wrap(storage.chars, start, end - start);
+    }
+
+    public void append(char c) {
+        reserve(1);
+        storage.chars[length++] = c;
+    }
+
+    public void append(CharSequence cs) {
+        int n = cs.length();
+        reserve(n);
+        if (cs instanceof String) {
+            ((String) cs).getChars(0, n, storage.chars, length);
+        } else {
+            for (int i = 0; i < n; i++)
+                storage.chars[length + i] = cs.charAt(i);
+        }
+
+        length += n;
+    }
+
+    // Another handle may have appended past our length, so a shared
+    // storage is only written to after copying it.
+    private void reserve(int n) {
+        int needed = length + n;
+        if (storage.refs > 1) {
+            storage.refs--;
+            storage = new Storage(Arrays.copyOf(storage.chars, Math.max(needed, length * 2)));
+        } else if (needed > storage.chars.length) {
+            storage.chars = Arrays.copyOf(storage.chars, Math.max(needed, storage.chars.length * 2));
+        }
+    }
+
+    @Override
+    public StringData share() {
+        storage.refs++;
+        StringData data = new StringData(storage, length);
+        data.claim();
+        return data;
+    }
+
+    @Override
+    public void release() {
+        storage.refs--;
+    }
+
+    @Override
+    public String toString() {
+        return new String(storage.chars, 0, length);
+    }
+
+}
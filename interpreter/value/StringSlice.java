@@ -0,0 +1,47 @@
+package interpreter.value;
+
+// A read-only window over a String. Strings are immutable, so a slice
+// can keep pointing at its source without ever needing to copy.
+public class StringSlice implements CharSequence {
+
+    private final String str;
+    private final int offset;
+    private final int length;
+
+    public StringSlice(String str, int from, int to) {
+        this.str = str;
+        this.offset = from;
+        this.length = to - from;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return str.charAt(offset + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new StringSlice(str, offset + start, offset + end);
+    }
+
+    @Override
+    public String toString() {
+        return str.substring(offset, offset + length);
+    }
+
+    public static CharSequence slice(CharSequence cs, int from, int to) {
+        if (from == 0 && to == cs.length())
+            return cs;
+
+        if (cs instanceof String)
+            return new StringSlice((String) cs, from, to);
+
+        return cs.subSequence(from, to);
+    }
+
+}
@@ -0,0 +1,95 @@
+package interpreter.value;
+
+import java.util.Arrays;
+
+// Substring search over any CharSequence. Plain Strings use
+// String.indexOf; other texts (slices, mapped lines, appended strings)
+// use Boyer-Moore-Horspool for patterns of at least MIN_SKIP chars, so
+// a mismatch can skip ahead by up to the pattern's length, and a scan
+// for the first char otherwise.
+public class TextSearch {
+
+    private static final int MIN_SKIP = 4;
+
+    private final String pattern;
+    private final int[] skip;
+
+    public TextSearch(CharSequence pattern) {
+        this.pattern = pattern.toString();
+
+        int m = this.pattern.length();
+        if (m < MIN_SKIP) {
+            skip = null;
+            return;
+        }
+
+        // Chars are bucketed by their low byte; a later char in the
+        // pattern has a smaller shift, so each bucket keeps the smallest.
+        skip = new int[256];
+        Arrays.fill(skip, m);
+        for (int i = 0; i < m - 1; i++)
+            skip[this.pattern.charAt(i) & 0xff] = m - 1 - i;
+    }
+
+    public int length() {
+        return pattern.length();
+    }
+
+    // Index of the first match at or after from, or -1.
+    public int find(CharSequence text, int from) {
+        if (text instanceof String)
+            return ((String) text).indexOf(pattern, from);
+
+        int m = pattern.length();
+        int n = text.length();
+        if (m == 0)
+            return from <= n ? from : -1;
+
+        if (skip == null)
+            return scan(text, from, n);
+
+        char last = pattern.charAt(m - 1);
+        for (int i = from + m - 1; i < n; ) {
+            char c = text.charAt(i);
+            if (c == last && matches(text, i - m + 1, m - 1))
+                return i - m + 1;
+
+            i += skip[c & 0xff];
+        }
+
+        return -1;
+    }
+
+    public boolean startsWith(CharSequence text) {
+        return text.length() >= pattern.length() && matches(text, 0, pattern.length());
+    }
+
+    public static int find(CharSequence text, CharSequence pattern) {
+        if (text instanceof String && pattern instanceof String)
+            return ((String) text).indexOf((String) pattern);
+
+        return new TextSearch(pattern).find(text, 0);
+    }
+
+    private int scan(CharSequence text, int from, int n) {
+        char first = pattern.charAt(0);
+        int m = pattern.length();
+        for (int i = from, end = n - m; i <= end; i++) {
+            if (text.charAt(i) == first && matches(text, i, m))
+                return i;
+        }
+
+        return -1;
+    }
+
+    // Whether the first len chars of the pattern occur at text[at].
+    private boolean matches(CharSequence text, int at, int len) {
+        for (int j = 0; j < len; j++) {
+            if (text.charAt(at + j) != pattern.charAt(j))
+                return false;
+        }
+
+        return true;
+    }
+
+}
@@ -1,13 +1,16 @@
 package interpreter.value;
 
-import java.util.List;
-import java.util.Map;
-
 import error.InternalException;
+import interpreter.io.Output;
 import interpreter.type.Type;
+import interpreter.type.primitive.CharType;
+import interpreter.type.primitive.IntType;
 
 public class Value {
     
+    private static final Value[] chars = new Value[Character.MAX_VALUE + 1];
+    private static final Value[] ints = new Value[1024 + 128];
+
     public final Type type;
     public final Object data;
 
@@ -26,13 +29,40 @@ public class Value {
                 assert(data instanceof Character);
                 break;
             case String:
-                assert(data instanceof String);
+                assert(data instanceof CharSequence);
                 break;
             case Array:
-                assert(data instanceof List<?>);
+                assert(data instanceof ArrayData);
                 break;
             case Dict:
-                assert(data instanceof Map<?,?>);
+                assert(data instanceof DictData);
+                break;
+            case Range:
+                assert(data instanceof Range);
+                break;
+            case Seq:
+                assert(data instanceof SeqData);
+                break;
+            case Matrix:
+                assert(data instanceof MatrixData);
+                break;
+            case Set:
+                assert(data instanceof SetData);
+                break;
+            case Heap:
+                assert(data instanceof HeapData);
+                break;
+            case Deque:
+                assert(data instanceof DequeData);
+                break;
+            case SortedDict:
+                assert(data instanceof SortedDictData);
+                break;
+            case Cache:
+                assert(data instanceof CacheData);
+                break;
+            case Writer:
+                assert(data instanceof Output);
                 break;
             default:
                 throw new InternalException("Unrecheable");
@@ -42,6 +72,78 @@ public class Value {
         this.data = data;
     }
 
+    public static Value of(char c) {
+        Value v = chars[c];
+        if (v == null) {
+            v = new Value(CharType.instance(), c);
+            chars[c] = v;
+        }
+
+        return v;
+    }
+
+    public static Value of(int n) {
+        if (n < -128 || n >= 1024)
+            return new Value(IntType.instance(), n);
+
+        Value v = ints[n + 128];
+        if (v == null) {
+            v = new Value(IntType.instance(), n);
+            ints[n + 128] = v;
+        }
+
+        return v;
+    }
+
+    // Returns the value to store in a variable or container slot, sharing
+    // the storage of composed values instead of copying it.
+    public Value hold() {
+        if (data instanceof SharedData) {
+            SharedData shared = (SharedData) data;
+            if (!shared.claim())
+                return new Value(type, shared.share());
+        }
+
+        return this;
+    }
+
+    public void release() {
+        if (data instanceof SharedData)
+            ((SharedData) data).release();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+
+        if (!(obj instanceof Value))
+            return false;
+
+        Value other = (Value) obj;
+        if (type.getCategory() != other.type.getCategory())
+            return false;
+
+        if (data instanceof CharSequence)
+            return CharSequence.compare((CharSequence) data, (CharSequence) other.data) == 0;
+
+        return data.equals(other.data);
+    }
+
+    @Override
+    public int hashCode() {
+        if (data instanceof String || !(data instanceof CharSequence))
+            return data.hashCode();
+
+        // Same hash as String, so slices and strings collide as keys.
+        CharSequence cs = (CharSequence) data;
+        int h = 0;
+        for (int i = 0, n = cs.length(); i < n; i++)
+            h = 31 * h + cs.charAt(i);
+
+        return h;
+    }
+
     @Override
     public String toString() {
         return new StringBuffer()
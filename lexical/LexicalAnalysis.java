@@ -23,6 +23,8 @@ public class LexicalAnalysis implements AutoCloseable {
 
         // SYMBOLS
         keywords.put(".", Token.Type.DOT);
+        keywords.put("..<", Token.Type.HALF_OPEN_RANGE);
+        keywords.put("...", Token.Type.CLOSED_RANGE);
         keywords.put(":", Token.Type.COLON);
         keywords.put(";", Token.Type.SEMICOLON);
         keywords.put(",", Token.Type.COMMA);
@@ -56,11 +58,13 @@ public class LexicalAnalysis implements AutoCloseable {
         keywords.put("print", Token.Type.PRINT);
         keywords.put("println", Token.Type.PRINTLN);
         keywords.put("dump", Token.Type.DUMP);
+        keywords.put("printf", Token.Type.PRINTF);
         keywords.put("if", Token.Type.IF);
         keywords.put("else", Token.Type.ELSE);
         keywords.put("while", Token.Type.WHILE);
         keywords.put("for", Token.Type.FOR);
         keywords.put("in", Token.Type.IN);
+        keywords.put("by", Token.Type.BY);
         keywords.put("Bool", Token.Type.BOOL);
         keywords.put("Int", Token.Type.INT);
         keywords.put("Float", Token.Type.FLOAT);
@@ -68,6 +72,14 @@ public class LexicalAnalysis implements AutoCloseable {
         keywords.put("String", Token.Type.STRING);
         keywords.put("Array", Token.Type.ARRAY);
         keywords.put("Dict", Token.Type.DICT);
+        keywords.put("Seq", Token.Type.SEQ);
+        keywords.put("Matrix", Token.Type.MATRIX);
+        keywords.put("Set", Token.Type.SET);
+        keywords.put("Heap", Token.Type.HEAP);
+        keywords.put("Deque", Token.Type.DEQUE);
+        keywords.put("SortedDict", Token.Type.SORTED_DICT);
+        keywords.put("Cache", Token.Type.CACHE);
+        keywords.put("Writer", Token.Type.WRITER);
         keywords.put("false", Token.Type.FALSE);
         keywords.put("true", Token.Type.TRUE);
         keywords.put("read", Token.Type.READ);
@@ -86,7 +98,7 @@ public class LexicalAnalysis implements AutoCloseable {
     }
 
     public LexicalAnalysis(InputStream is) {
-        input = new PushbackInputStream(is);
+        input = new PushbackInputStream(is, 2);
         line = 1;
     }
 
@@ -129,13 +141,16 @@ public class LexicalAnalysis implements AutoCloseable {
                     } else if (c =='|'){
                         token.lexeme += (char) c;
                         state = 7;
-                    } else if (c == '.' || c == ',' || c == ':' || c == ';' ||
+                    } else if (c == '.') {
+                        token.lexeme += (char) c;
+                        state = 16;
+                    } else if (c == ',' || c == ':' || c == ';' ||
                             c == '?' || c == '+' || c == '-' || c == '*' ||
                             c == '(' || c == ')' || c == '{' || c == '}' ||
                             c == '[' || c == ']') {
                         token.lexeme += (char) c;
                         state = 14;
-                    } else if (c == '_' ||
+                    } else if (c == '_' || c == '$' ||
                                Character.isLetter(c)) {
                         token.lexeme += (char) c;
                         state = 8;
@@ -230,8 +245,17 @@ public class LexicalAnalysis implements AutoCloseable {
                         token.lexeme += (char) c;
                         state = 9;
                     } else if (c == '.') {
-                        token.lexeme += (char) c;
-                        state = 10;
+                        int next = getc();
+                        ungetc(next);
+                        if (next == '.') {
+                            ungetc(c);
+                            token.type = Token.Type.INTEGER_LITERAL;
+                            token.literal = new Value(IntType.instance(), toInt(token.lexeme));
+                            state = 15;
+                        } else {
+                            token.lexeme += (char) c;
+                            state = 10;
+                        }
                     } else {
                         ungetc(c);
                         token.type = Token.Type.INTEGER_LITERAL;
@@ -300,6 +324,25 @@ public class LexicalAnalysis implements AutoCloseable {
                         state = 15;
                     }
                     break;
+                case 16:
+                    if (c == '.') {
+                        token.lexeme += (char) c;
+                        state = 17;
+                    } else {
+                        ungetc(c);
+                        state = 14;
+                    }
+                    break;
+                case 17:
+                    if (c == '<' || c == '.') {
+                        token.lexeme += (char) c;
+                        state = 14;
+                    } else {
+                        ungetc(c);
+                        token.type = Token.Type.INVALID_TOKEN;
+                        state = 15;
+                    }
+                    break;
                 default:
                     throw new InternalException("Unreachable");
             }
@@ -12,6 +12,8 @@ public class Token {
 
         // Symbols.
         DOT,           // .
+        HALF_OPEN_RANGE, // ..<
+        CLOSED_RANGE,  // ...
         COLON,         // :
         SEMICOLON,     // ;
         COMMA,         // ,
@@ -45,11 +47,13 @@ public class Token {
         PRINT,         // print
         PRINTLN,       // println
         DUMP,          // dump
+        PRINTF,        // printf
         IF,            // if
         ELSE,          // else
         WHILE,         // while
         FOR,           // for
         IN,            // in
+        BY,            // by
         BOOL,          // Bool
         INT,           // Int
         FLOAT,         // Float
@@ -57,6 +61,14 @@ public class Token {
         STRING,        // String
         ARRAY,         // Array
         DICT,          // Dict
+        SEQ,           // Seq
+        MATRIX,        // Matrix
+        SET,           // Set
+        HEAP,          // Heap
+        DEQUE,         // Deque
+        SORTED_DICT,   // SortedDict
+        CACHE,         // Cache
+        WRITER,        // Writer
         FALSE,         // false
         TRUE,          // true
         READ,          // read
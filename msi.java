@@ -3,10 +3,13 @@ import java.io.ByteArrayInputStream;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 
 import error.LanguageException;
 import interpreter.Interpreter;
 import interpreter.command.Command;
+import interpreter.expr.RegexExpr;
+import interpreter.io.Output;
 import lexical.LexicalAnalysis;
 import lexical.Token;
 import syntatic.SyntaticAnalysis;
@@ -25,6 +28,8 @@ public class msi {
                     System.out.println("Usage: java msi [miniSwift file]");
                     break;
             }
+        } catch (Output.BrokenPipeException e) {
+            // Nobody reads the output any more: stop without a word.
         } catch (Exception e) {
             System.err.println("Internal error: " + e.getMessage());
             e.printStackTrace();
@@ -69,7 +74,16 @@ public class msi {
             Command cmd = s.process();
             Interpreter.interpret(cmd);
         } catch (LanguageException e) {
-            System.out.println(e.getMessage());
+            Output.stdout().println(e.getMessage());
+        } finally {
+            try {
+                Output.flushAll();
+            } catch (UncheckedIOException e) {
+                Output.stdout().println(String.format(LanguageException.Error.InvalidFile.msg, e.getMessage())).flush();
+            }
+
+            if (Boolean.getBoolean("msi.stats"))
+                System.err.println(RegexExpr.stats());
         }
     }
 
@@ -19,25 +19,48 @@ import interpreter.command.ForCommand;
 import interpreter.command.IfCommand;
 import interpreter.command.InitializeCommand;
 import interpreter.command.PrintCommand;
+import interpreter.command.PrintfCommand;
 import interpreter.command.WhileCommand;
 import interpreter.expr.AccessExpr;
 import interpreter.expr.ActionExpr;
 import interpreter.expr.ArrayExpr;
 import interpreter.expr.BinaryExpr;
+import interpreter.expr.CacheExpr;
 import interpreter.expr.CastExpr;
 import interpreter.expr.ConditionalExpr;
 import interpreter.expr.ConstExpr;
+import interpreter.expr.CsvExpr;
+import interpreter.expr.DequeExpr;
 import interpreter.expr.DictExpr;
 import interpreter.expr.DictItem;
 import interpreter.expr.Expr;
+import interpreter.expr.FormatExpr;
 import interpreter.expr.FunctionExpr;
+import interpreter.expr.HeapExpr;
+import interpreter.expr.JsonExpr;
+import interpreter.expr.Lambda;
+import interpreter.expr.MatrixExpr;
+import interpreter.expr.RangeExpr;
+import interpreter.expr.RegexExpr;
+import interpreter.expr.SeqExpr;
 import interpreter.expr.SetExpr;
+import interpreter.expr.SetLiteralExpr;
+import interpreter.expr.SortedDictExpr;
 import interpreter.expr.UnaryExpr;
 import interpreter.expr.Variable;
+import interpreter.io.Json;
 import interpreter.type.Type;
 import interpreter.type.composed.ArrayType;
+import interpreter.type.composed.CacheType;
 import interpreter.type.composed.ComposedType;
+import interpreter.type.composed.DequeType;
 import interpreter.type.composed.DictType;
+import interpreter.type.composed.HeapType;
+import interpreter.type.composed.MatrixType;
+import interpreter.type.composed.SeqType;
+import interpreter.type.composed.SetType;
+import interpreter.type.composed.SortedDictType;
+import interpreter.type.composed.WriterType;
 import interpreter.type.primitive.BoolType;
 import interpreter.type.primitive.CharType;
 import interpreter.type.primitive.FloatType;
@@ -53,6 +76,7 @@ public class SyntaticAnalysis {
     private LexicalAnalysis lex;
     private Token current;
     private Token previous;
+    private Token next;
     private Environment environment;
 
     public SyntaticAnalysis(LexicalAnalysis lex) {
@@ -71,7 +95,21 @@ public class SyntaticAnalysis {
     private void advance() {
         //System.out.println("Found " + current);
         previous = current;
-        current = lex.nextToken();
+        if (next != null) {
+            current = next;
+            next = null;
+        } else {
+            current = lex.nextToken();
+        }
+    }
+
+    // The token after current, read ahead only where a NAME alone is
+    // ambiguous.
+    private Token peek() {
+        if (next == null)
+            next = lex.nextToken();
+
+        return next;
     }
 
     private void eat(Token.Type type) {
@@ -122,7 +160,7 @@ public class SyntaticAnalysis {
         while (check(Token.Type.OPEN_CUR,
                 Token.Type.VAR, Token.Type.LET,
                 Token.Type.PRINT, Token.Type.PRINTLN,
-                Token.Type.DUMP, Token.Type.IF,
+                Token.Type.PRINTF, Token.Type.DUMP, Token.Type.IF,
                 Token.Type.WHILE, Token.Type.FOR,
                 Token.Type.NOT, Token.Type.SUB,
                 Token.Type.OPEN_PAR, Token.Type.FALSE,
@@ -142,7 +180,7 @@ public class SyntaticAnalysis {
         return bcmd;
     }
 
-    // <cmd> ::= <block> | <decl> | <print> | <dump> | <if> | <while> | <for> | <assign>
+    // <cmd> ::= <block> | <decl> | <print> | <printf> | <dump> | <if> | <while> | <for> | <assign>
     private Command procCmd() {
         Command cmd = null;
         if (check(Token.Type.OPEN_CUR)) {
@@ -151,6 +189,8 @@ public class SyntaticAnalysis {
             cmd = procDecl();
         } else if (check(Token.Type.PRINT, Token.Type.PRINTLN)) {
             cmd = procPrint();
+        } else if (check(Token.Type.PRINTF)) {
+            cmd = procPrintf();
         } else if (check(Token.Type.DUMP)) {
             cmd = procDump();
         } else if (check(Token.Type.IF)) {
@@ -316,16 +356,41 @@ public class SyntaticAnalysis {
         return pcmd;
     }
 
-    // <dump> ::= dump '(' <expr> ')' [';']
+    // <printf> ::= printf '(' <format> ')' [';']
+    private PrintfCommand procPrintf() {
+        eat(Token.Type.PRINTF);
+        int line = previous.line;
+        eat(Token.Type.OPEN_PAR);
+        FormatExpr format = procFormat(line);
+        eat(Token.Type.CLOSE_PAR);
+        match(Token.Type.SEMICOLON);
+
+        return new PrintfCommand(line, format);
+    }
+
+    // <format> ::= <expr> { ',' <expr> }
+    private FormatExpr procFormat(int line) {
+        Expr format = procExpr();
+        List<Expr> args = new ArrayList<Expr>();
+        while (match(Token.Type.COMMA))
+            args.add(procExpr());
+
+        return new FormatExpr(line, format, args);
+    }
+
+    // <dump> ::= dump '(' <expr> [ ',' <expr> ] ')' [';']
     private DumpCommand procDump() {
         eat(Token.Type.DUMP);
         int line = previous.line;
         eat(Token.Type.OPEN_PAR);
         Expr expr = procExpr();
+        Expr limit = null;
+        if (match(Token.Type.COMMA))
+            limit = procExpr();
         eat(Token.Type.CLOSE_PAR);
         match(Token.Type.SEMICOLON);
 
-        DumpCommand dcmd = new DumpCommand(line, expr);
+        DumpCommand dcmd = new DumpCommand(line, expr, limit);
         return dcmd;
     }
 
@@ -381,6 +446,12 @@ public class SyntaticAnalysis {
             } else{
                 name = procName();
                 v = this.environment.get(name);
+
+                // The loop binds its variable directly, so a constant
+                // must be rejected here rather than on each assignment.
+                if (v.isConstant())
+                    throw LanguageException.instance(name.line, LanguageException.Error.ConstantAssignment,
+                        name.lexeme);
             }
 
             eat(Token.Type.IN);
@@ -435,7 +506,9 @@ public class SyntaticAnalysis {
         if (check(Token.Type.BOOL, Token.Type.INT, Token.Type.FLOAT,
                 Token.Type.CHAR, Token.Type.STRING)) {
             return procPrimitive();
-        } else if (check(Token.Type.ARRAY, Token.Type.DICT)) {
+        } else if (check(Token.Type.ARRAY, Token.Type.DICT, Token.Type.SEQ, Token.Type.MATRIX,
+                Token.Type.SET, Token.Type.HEAP, Token.Type.DEQUE, Token.Type.SORTED_DICT,
+                Token.Type.CACHE, Token.Type.WRITER)) {
             return procComposed();
         } else {
             reportError();
@@ -469,14 +542,34 @@ public class SyntaticAnalysis {
         return null;
     }
 
-    // <composed> ::= <arraytype> | <dicttype>
+    // <composed> ::= <arraytype> | <dicttype> | <seqtype> | <matrixtype> | <settype>
+    //              | <heaptype> | <dequetype> | <sorteddicttype> | <cachetype> | Writer
     private ComposedType procComposed() {
-         if (check(Token.Type.ARRAY, Token.Type.DICT)) {
+         if (check(Token.Type.ARRAY, Token.Type.DICT, Token.Type.SEQ, Token.Type.MATRIX,
+                Token.Type.SET, Token.Type.HEAP, Token.Type.DEQUE, Token.Type.SORTED_DICT,
+                Token.Type.CACHE, Token.Type.WRITER)) {
             switch (current.type) {
                 case ARRAY:
                     return procArrayType();
                 case DICT:
                     return procDictType();
+                case SEQ:
+                    return procSeqType();
+                case MATRIX:
+                    return procMatrixType();
+                case SET:
+                    return procSetType();
+                case HEAP:
+                    return procHeapType();
+                case DEQUE:
+                    return procDequeType();
+                case SORTED_DICT:
+                    return procSortedDictType();
+                case CACHE:
+                    return procCacheType();
+                case WRITER:
+                    eat(Token.Type.WRITER);
+                    return WriterType.instance();
                 default:
                     reportError();
             }
@@ -496,6 +589,82 @@ public class SyntaticAnalysis {
         return ArrayType.instance(type);
     }
 
+    // <seqtype> ::= Seq '<' <type> '>'
+    private SeqType procSeqType() {
+        eat(Token.Type.SEQ);
+        eat(Token.Type.LOWER_THAN);
+        Type type = procType();
+        eat(Token.Type.GREATER_THAN);
+        return SeqType.instance(type);
+    }
+
+    // <settype> ::= Set '<' <type> '>'
+    private SetType procSetType() {
+        eat(Token.Type.SET);
+        eat(Token.Type.LOWER_THAN);
+        Type type = procType();
+        eat(Token.Type.GREATER_THAN);
+        return SetType.instance(type);
+    }
+
+    // <heaptype> ::= Heap '<' ( Int | Float | Char | String ) '>'
+    private HeapType procHeapType() {
+        eat(Token.Type.HEAP);
+        eat(Token.Type.LOWER_THAN);
+        int line = current.line;
+        Type type = procType();
+        if (!(type instanceof PrimitiveType) || BoolType.instance().match(type))
+            throw LanguageException.instance(line, LanguageException.Error.InvalidType, type.toString());
+        eat(Token.Type.GREATER_THAN);
+        return HeapType.instance(type);
+    }
+
+    // <sorteddicttype> ::= SortedDict '<' ( Int | Float | Char | String ) ',' <type> '>'
+    private SortedDictType procSortedDictType() {
+        eat(Token.Type.SORTED_DICT);
+        eat(Token.Type.LOWER_THAN);
+        int line = current.line;
+        Type type = procType();
+        if (!(type instanceof PrimitiveType) || BoolType.instance().match(type))
+            throw LanguageException.instance(line, LanguageException.Error.InvalidType, type.toString());
+        eat(Token.Type.COMMA);
+        Type type2 = procType();
+        eat(Token.Type.GREATER_THAN);
+        return SortedDictType.instance(type, type2);
+    }
+
+    // <cachetype> ::= Cache '<' <type> ',' <type> '>'
+    private CacheType procCacheType() {
+        eat(Token.Type.CACHE);
+        eat(Token.Type.LOWER_THAN);
+        Type type = procType();
+        eat(Token.Type.COMMA);
+        Type type2 = procType();
+        eat(Token.Type.GREATER_THAN);
+        return CacheType.instance(type, type2);
+    }
+
+    // <dequetype> ::= Deque '<' <type> '>'
+    private DequeType procDequeType() {
+        eat(Token.Type.DEQUE);
+        eat(Token.Type.LOWER_THAN);
+        Type type = procType();
+        eat(Token.Type.GREATER_THAN);
+        return DequeType.instance(type);
+    }
+
+    // <matrixtype> ::= Matrix '<' ( Int | Float ) '>'
+    private MatrixType procMatrixType() {
+        eat(Token.Type.MATRIX);
+        eat(Token.Type.LOWER_THAN);
+        int line = current.line;
+        Type type = procType();
+        if (!IntType.instance().match(type) && !FloatType.instance().match(type))
+            throw LanguageException.instance(line, LanguageException.Error.InvalidType, type.toString());
+        eat(Token.Type.GREATER_THAN);
+        return MatrixType.instance(type);
+    }
+
     // <dicttype> ::= Dict '<' <type> ',' <type> '>'
     private DictType procDictType() {
         eat(Token.Type.DICT);
@@ -569,9 +738,9 @@ public class SyntaticAnalysis {
         return left;
     }
 
-    // <rel> ::= <arith> [ ( '<' | '>' | '<=' | '>=' | '==' | '!=' ) <arith> ]
+    // <rel> ::= <range> [ ( '<' | '>' | '<=' | '>=' | '==' | '!=' ) <range> ]
     private Expr procRel() {
-        Expr left = procArith();
+        Expr left = procRange();
 
         if (match(Token.Type.LOWER_THAN, Token.Type.GREATER_THAN,
                 Token.Type.LOWER_EQUAL, Token.Type.GREATER_EQUAL,
@@ -602,13 +771,32 @@ public class SyntaticAnalysis {
                     throw new InternalError("Unreachable");
             }
 
-            Expr right = procArith();
+            Expr right = procRange();
             left = new BinaryExpr(line, left, op, right);
         }
         
         return left;
     }
 
+    // <range> ::= <arith> [ ( '..<' | '...' ) <arith> [ by <arith> ] ]
+    private Expr procRange() {
+        Expr left = procArith();
+
+        if (match(Token.Type.HALF_OPEN_RANGE, Token.Type.CLOSED_RANGE)) {
+            int line = previous.line;
+            boolean inclusive = previous.type == Token.Type.CLOSED_RANGE;
+
+            Expr right = procArith();
+            Expr step = null;
+            if (match(Token.Type.BY))
+                step = procArith();
+
+            left = new RangeExpr(line, left, right, step, inclusive);
+        }
+
+        return left;
+    }
+
     // <arith> ::= <term> { ( '+' | '-' ) <term> }
     private Expr procArith() {
         Expr left = procTerm();
@@ -683,7 +871,8 @@ public class SyntaticAnalysis {
         return expr1;
     }
 
-    // <rvalue> ::= <const> | <action> | <cast> | <array> | <dict> | <lvalue>
+    // <rvalue> ::= <const> | <action> | <cast> | <array> | <dict> | <matrix> | <set>
+    //            | <heap> | <deque> | <sorteddict> | <cache> | <builtin> | <lvalue>
     private Expr procRValue() {
         Expr expr = null;
         if (check(Token.Type.FALSE, Token.Type.TRUE,
@@ -699,8 +888,23 @@ public class SyntaticAnalysis {
             expr = procArray();
         } else if (check(Token.Type.DICT)) {
             expr = procDict();
+        } else if (check(Token.Type.MATRIX)) {
+            expr = procMatrix();
+        } else if (check(Token.Type.SET)) {
+            expr = procSet();
+        } else if (check(Token.Type.HEAP)) {
+            expr = procHeap();
+        } else if (check(Token.Type.DEQUE)) {
+            expr = procDeque();
+        } else if (check(Token.Type.SORTED_DICT)) {
+            expr = procSortedDict();
+        } else if (check(Token.Type.CACHE)) {
+            expr = procCache();
         } else if (check(Token.Type.NAME)) {
-            expr = procLValue();
+            Token name = procName();
+            boolean generic = check(Token.Type.LOWER_THAN) &&
+                ("parseJson".equals(name.lexeme) || "loadCsv".equals(name.lexeme));
+            expr = check(Token.Type.OPEN_PAR) || generic ? procBuiltin(name) : procLValue(name);
         } else {
             reportError();
         }
@@ -811,12 +1015,23 @@ public class SyntaticAnalysis {
         return cexpr;
     }
 
-    // <array> ::= <arraytype> '(' [ <expr> { ',' <expr> } ] ')'
+    // <array> ::= <arraytype> '(' [ <expr> { ',' <expr> } | offHeap ':' <expr> ] ')'
     private ArrayExpr procArray() {
         ArrayType type = procArrayType();
         List<Expr> expr = new ArrayList<Expr>();
         Expr carry;
         eat(Token.Type.OPEN_PAR);
+        if (check(Token.Type.NAME) && "offHeap".equals(current.lexeme) && peek().type == Token.Type.COLON) {
+            int line = current.line;
+            Type inner = type.getInnerType();
+            if (!IntType.instance().match(inner) && !FloatType.instance().match(inner))
+                throw LanguageException.instance(line, LanguageException.Error.InvalidType, inner.toString());
+
+            Expr size = procNamedArg("offHeap");
+            eat(Token.Type.CLOSE_PAR);
+            return new ArrayExpr(line, type, size);
+        }
+
         if (!check(Token.Type.CLOSE_PAR)) {
             carry = procExpr();
             expr.add(carry);
@@ -834,52 +1049,277 @@ public class SyntaticAnalysis {
     private DictExpr procDict() {
         DictType type = procDictType();
         List<DictItem> expr = new ArrayList<DictItem>();
-        DictItem carry = new DictItem(null, null);
         eat(Token.Type.OPEN_PAR);
         if(!check(Token.Type.CLOSE_PAR)){
-            carry.key = procExpr();
-            eat(Token.Type.COLON);
-            carry.value = procExpr();
-            expr.add(carry);
-            while (match(Token.Type.COMMA)){
-                carry.key = procExpr();
+            do {
+                Expr key = procExpr();
                 eat(Token.Type.COLON);
-                carry.value = procExpr();
-                expr.add(carry);
-            }
+                Expr value = procExpr();
+                expr.add(new DictItem(key, value));
+            } while (match(Token.Type.COMMA));
         }
         eat(Token.Type.CLOSE_PAR);
-        System.out.println(expr);
-        System.out.println("^procDict expr");
         DictExpr dexpr = new DictExpr(current.line, type,expr);
         return dexpr;
     }
 
-    // <lvalue> ::= <name> { '[' <expr> ']' }
-    private SetExpr procLValue() {
+    // <matrix> ::= <matrixtype> '(' <expr> ',' <expr> ')'
+    private MatrixExpr procMatrix() {
+        int line = current.line;
+        MatrixType type = procMatrixType();
+        eat(Token.Type.OPEN_PAR);
+        Expr rows = procExpr();
+        eat(Token.Type.COMMA);
+        Expr cols = procExpr();
+        eat(Token.Type.CLOSE_PAR);
+        return new MatrixExpr(line, type, rows, cols);
+    }
+
+    // <set> ::= <settype> '(' [ <expr> { ',' <expr> } ] ')'
+    private SetLiteralExpr procSet() {
+        int line = current.line;
+        SetType type = procSetType();
+        List<Expr> items = new ArrayList<Expr>();
+        eat(Token.Type.OPEN_PAR);
+        if (!check(Token.Type.CLOSE_PAR)) {
+            do {
+                items.add(procExpr());
+            } while (match(Token.Type.COMMA));
+        }
+        eat(Token.Type.CLOSE_PAR);
+        return new SetLiteralExpr(line, type, items);
+    }
+
+    // <heap> ::= <heaptype> '(' [ min | max ] ')'
+    private HeapExpr procHeap() {
+        int line = current.line;
+        HeapType type = procHeapType();
+        boolean max = false;
+        eat(Token.Type.OPEN_PAR);
+        if (check(Token.Type.NAME)) {
+            Token order = procName();
+            if ("max".equals(order.lexeme))
+                max = true;
+            else if (!"min".equals(order.lexeme))
+                throw LanguageException.instance(order.line, UnexpectedLexeme, order.lexeme);
+        }
+        eat(Token.Type.CLOSE_PAR);
+        return new HeapExpr(line, type, max);
+    }
+
+    // <deque> ::= <dequetype> '(' [ <expr> { ',' <expr> } ] ')'
+    private DequeExpr procDeque() {
+        int line = current.line;
+        DequeType type = procDequeType();
+        List<Expr> items = new ArrayList<Expr>();
+        eat(Token.Type.OPEN_PAR);
+        if (!check(Token.Type.CLOSE_PAR)) {
+            do {
+                items.add(procExpr());
+            } while (match(Token.Type.COMMA));
+        }
+        eat(Token.Type.CLOSE_PAR);
+        return new DequeExpr(line, type, items);
+    }
+
+    // <sorteddict> ::= <sorteddicttype> '(' [ <expr> ':' <expr> { ',' <expr> ':' <expr> } ] ')'
+    private SortedDictExpr procSortedDict() {
+        int line = current.line;
+        SortedDictType type = procSortedDictType();
+        List<DictItem> items = new ArrayList<DictItem>();
+        eat(Token.Type.OPEN_PAR);
+        if (!check(Token.Type.CLOSE_PAR)) {
+            do {
+                Expr key = procExpr();
+                eat(Token.Type.COLON);
+                Expr value = procExpr();
+                items.add(new DictItem(key, value));
+            } while (match(Token.Type.COMMA));
+        }
+        eat(Token.Type.CLOSE_PAR);
+        return new SortedDictExpr(line, type, items);
+    }
+
+    // <cache> ::= <cachetype> '(' capacity ':' <expr> [ ',' bytes ':' <expr> ] ')'
+    private CacheExpr procCache() {
+        int line = current.line;
+        CacheType type = procCacheType();
+        eat(Token.Type.OPEN_PAR);
+        Expr capacity = procNamedArg("capacity");
+        Expr bytes = null;
+        if (match(Token.Type.COMMA))
+            bytes = procNamedArg("bytes");
+        eat(Token.Type.CLOSE_PAR);
+        return new CacheExpr(line, type, capacity, bytes);
+    }
+
+    // <namedarg> ::= NAME ':' <expr>, where NAME must be the given label
+    private Expr procNamedArg(String label) {
         Token name = procName();
+        if (!label.equals(name.lexeme))
+            throw LanguageException.instance(name.line, UnexpectedLexeme, name.lexeme);
+
+        eat(Token.Type.COLON);
+        return procExpr();
+    }
+
+    // <builtin> ::= lines '(' [ <expr> ] ')' | readAll '(' ')'
+    //             | ( readFile | bytes | openWrite | openAppend ) '(' <expr> ')'
+    //             | ( writeFile | appendFile ) '(' <expr> ',' <expr> ')'
+    //             | ( toJson | jsonEvents ) '(' <expr> ')' | <parsejson> | <loadcsv>
+    //             | ( matches | firstMatch | allMatches ) '(' <expr> ',' <expr> ')'
+    //             | replaceAll '(' <expr> ',' <expr> ',' <expr> ')'
+    //             | format '(' <format> ')'
+    private Expr procBuiltin(Token name) {
+        int line = name.line;
+        Expr expr;
+        if ("parseJson".equals(name.lexeme))
+            return procParseJson(line);
+
+        if ("loadCsv".equals(name.lexeme))
+            return procLoadCsv(line);
+
+        eat(Token.Type.OPEN_PAR);
+        switch (name.lexeme) {
+            case "lines":
+                expr = new ActionExpr(line, ActionExpr.Op.Lines,
+                    check(Token.Type.CLOSE_PAR) ? null : procExpr());
+                break;
+            case "readAll":
+                expr = new ActionExpr(line, ActionExpr.Op.ReadAll);
+                break;
+            case "readFile":
+                expr = new ActionExpr(line, ActionExpr.Op.ReadFile, procExpr());
+                break;
+            case "bytes":
+                expr = new ActionExpr(line, ActionExpr.Op.Bytes, procExpr());
+                break;
+            case "openWrite":
+                expr = new ActionExpr(line, ActionExpr.Op.OpenWrite, procExpr());
+                break;
+            case "openAppend":
+                expr = new ActionExpr(line, ActionExpr.Op.OpenAppend, procExpr());
+                break;
+            case "toJson":
+                expr = new JsonExpr(line, JsonExpr.Op.ToJson, null, procExpr());
+                break;
+            case "jsonEvents":
+                expr = new JsonExpr(line, JsonExpr.Op.Events, null, procExpr());
+                break;
+            case "format":
+                expr = procFormat(line);
+                break;
+            case "matches":
+            case "firstMatch":
+            case "allMatches":
+            case "replaceAll":
+                expr = procRegex(line, name.lexeme);
+                break;
+            case "writeFile":
+            case "appendFile":
+                Expr path = procExpr();
+                eat(Token.Type.COMMA);
+                expr = new ActionExpr(line, "writeFile".equals(name.lexeme) ?
+                    ActionExpr.Op.WriteFile : ActionExpr.Op.AppendFile, path, procExpr());
+                break;
+            default:
+                throw LanguageException.instance(line, UnexpectedLexeme, name.lexeme);
+        }
+
+        eat(Token.Type.CLOSE_PAR);
+        return expr;
+    }
+
+    // A literal pattern is compiled here, once, by the RegexExpr.
+    private RegexExpr procRegex(int line, String name) {
+        RegexExpr.Op op;
+        switch (name) {
+            case "matches":
+                op = RegexExpr.Op.Matches;
+                break;
+            case "firstMatch":
+                op = RegexExpr.Op.FirstMatch;
+                break;
+            case "allMatches":
+                op = RegexExpr.Op.AllMatches;
+                break;
+            default:
+                op = RegexExpr.Op.ReplaceAll;
+                break;
+        }
+
+        Expr text = procExpr();
+        eat(Token.Type.COMMA);
+        Expr pattern = procExpr();
+        Expr replacement = null;
+        if (op == RegexExpr.Op.ReplaceAll) {
+            eat(Token.Type.COMMA);
+            replacement = procExpr();
+        }
+
+        return new RegexExpr(line, op, text, pattern, replacement);
+    }
+
+    // <parsejson> ::= parseJson '<' <type> '>' '(' <expr> ')'
+    private JsonExpr procParseJson(int line) {
+        eat(Token.Type.LOWER_THAN);
+        int tline = current.line;
+        Type type = procType();
+        if (!Json.readable(type))
+            throw LanguageException.instance(tline, LanguageException.Error.InvalidType, type.toString());
+        eat(Token.Type.GREATER_THAN);
+
+        eat(Token.Type.OPEN_PAR);
+        Expr text = procExpr();
+        eat(Token.Type.CLOSE_PAR);
+        return new JsonExpr(line, JsonExpr.Op.Parse, type, text);
+    }
+
+    // <loadcsv> ::= loadCsv '<' <type> '>' '(' <expr> ',' <expr> ')'
+    private CsvExpr procLoadCsv(int line) {
+        eat(Token.Type.LOWER_THAN);
+        int tline = current.line;
+        Type type = procType();
+        if (!CsvExpr.loadable(type))
+            throw LanguageException.instance(tline, LanguageException.Error.InvalidType, type.toString());
+        eat(Token.Type.GREATER_THAN);
+
+        eat(Token.Type.OPEN_PAR);
+        Expr path = procExpr();
+        eat(Token.Type.COMMA);
+        Expr columns = procExpr();
+        eat(Token.Type.CLOSE_PAR);
+        return new CsvExpr(line, type, path, columns);
+    }
+
+    // <lvalue> ::= <name> { '[' <expr> [ ',' <expr> ] ']' }
+    private SetExpr procLValue(Token name) {
         SetExpr sexpr = this.environment.get(name);
         Expr expr;
 
         while (match(Token.Type.OPEN_BRA)) {
             int line = current.line;
             expr = procExpr();
-            sexpr = new AccessExpr(line, sexpr, expr);
+            Expr column = match(Token.Type.COMMA) ? procExpr() : null;
+            sexpr = new AccessExpr(line, sexpr, expr, column);
             eat(Token.Type.CLOSE_BRA);
         }
 
         return sexpr;
     }
 
-    // <function> ::= { '.' ( <fnoargs> | <fonearg> ) }
+    // <function> ::= { '.' ( <fnoargs> | <fonearg> | <collectionop> | <seqop> ) }
     private Expr procFunction(Expr expr) {
         //Tem que implementar
         Expr functionExpr = expr;
         while(match(Token.Type.DOT)){
             if(check(Token.Type.COUNT, Token.Type.EMPTY,Token.Type.KEYS,Token.Type.VALUES)){
-                functionExpr = procFNoArgs(expr);
+                functionExpr = procFNoArgs(functionExpr);
+            } else if (check(Token.Type.NAME)) {
+                functionExpr = isCollectionOp(functionExpr) ?
+                    procCollectionOp(functionExpr) : procSeqOp(functionExpr);
             } else{
-                functionExpr = procFOneArg(expr);
+                functionExpr = procFOneArg(functionExpr);
             }
 
             }
@@ -923,6 +1363,10 @@ public class SyntaticAnalysis {
             int line = current.line;
             switch (previous.type){
                 case APPEND:
+                    eat(Token.Type.OPEN_PAR);
+                    Expr item = procExpr();
+                    eat(Token.Type.CLOSE_PAR);
+                    expr = new FunctionExpr(line,FunctionExpr.FunctionOp.Append,expr, item);
                 break;
                 case CONTAINS:
                     eat(Token.Type.OPEN_PAR);
@@ -939,6 +1383,241 @@ public class SyntaticAnalysis {
        return expr;
     }
 
+    // sum() on an array runs the native kernel instead of a sequence.
+    private boolean isCollectionOp(Expr expr) {
+        if ("sum".equals(current.lexeme))
+            return expr.getType() instanceof ArrayType;
+
+        return collectionOp(current.lexeme) != null;
+    }
+
+    private static FunctionExpr.FunctionOp collectionOp(String name) {
+        switch (name) {
+            case "sort":
+                return FunctionExpr.FunctionOp.Sort;
+            case "sorted":
+                return FunctionExpr.FunctionOp.Sorted;
+            case "reverse":
+                return FunctionExpr.FunctionOp.Reverse;
+            case "min":
+                return FunctionExpr.FunctionOp.Min;
+            case "max":
+                return FunctionExpr.FunctionOp.Max;
+            case "sum":
+                return FunctionExpr.FunctionOp.Sum;
+            case "add":
+                return FunctionExpr.FunctionOp.Add;
+            case "scale":
+                return FunctionExpr.FunctionOp.Scale;
+            case "dot":
+                return FunctionExpr.FunctionOp.Dot;
+            case "rows":
+                return FunctionExpr.FunctionOp.Rows;
+            case "cols":
+                return FunctionExpr.FunctionOp.Cols;
+            case "transpose":
+                return FunctionExpr.FunctionOp.Transpose;
+            case "multiply":
+                return FunctionExpr.FunctionOp.Multiply;
+            case "insert":
+                return FunctionExpr.FunctionOp.Insert;
+            case "remove":
+                return FunctionExpr.FunctionOp.Remove;
+            case "union":
+                return FunctionExpr.FunctionOp.Union;
+            case "intersection":
+                return FunctionExpr.FunctionOp.Intersection;
+            case "difference":
+                return FunctionExpr.FunctionOp.Difference;
+            case "push":
+                return FunctionExpr.FunctionOp.Push;
+            case "pop":
+                return FunctionExpr.FunctionOp.Pop;
+            case "peek":
+                return FunctionExpr.FunctionOp.Peek;
+            case "pushFront":
+                return FunctionExpr.FunctionOp.PushFront;
+            case "pushBack":
+                return FunctionExpr.FunctionOp.PushBack;
+            case "popFront":
+                return FunctionExpr.FunctionOp.PopFront;
+            case "popBack":
+                return FunctionExpr.FunctionOp.PopBack;
+            case "front":
+                return FunctionExpr.FunctionOp.Front;
+            case "back":
+                return FunctionExpr.FunctionOp.Back;
+            case "floor":
+                return FunctionExpr.FunctionOp.Floor;
+            case "ceiling":
+                return FunctionExpr.FunctionOp.Ceiling;
+            case "get":
+                return FunctionExpr.FunctionOp.Get;
+            case "hits":
+                return FunctionExpr.FunctionOp.Hits;
+            case "misses":
+                return FunctionExpr.FunctionOp.Misses;
+            case "evictions":
+                return FunctionExpr.FunctionOp.Evictions;
+            case "write":
+                return FunctionExpr.FunctionOp.Write;
+            case "writeln":
+                return FunctionExpr.FunctionOp.Writeln;
+            case "flush":
+                return FunctionExpr.FunctionOp.Flush;
+            case "close":
+                return FunctionExpr.FunctionOp.Close;
+            case "find":
+                return FunctionExpr.FunctionOp.Find;
+            case "split":
+                return FunctionExpr.FunctionOp.Split;
+            case "replace":
+                return FunctionExpr.FunctionOp.Replace;
+            case "startsWith":
+                return FunctionExpr.FunctionOp.StartsWith;
+            case "trim":
+                return FunctionExpr.FunctionOp.Trim;
+            case "join":
+                return FunctionExpr.FunctionOp.Join;
+            default:
+                return null;
+        }
+    }
+
+    private static boolean takesArgument(FunctionExpr.FunctionOp op) {
+        switch (op) {
+            case Add:
+            case Scale:
+            case Dot:
+            case Multiply:
+            case Insert:
+            case Remove:
+            case Union:
+            case Intersection:
+            case Difference:
+            case Push:
+            case PushFront:
+            case PushBack:
+            case Floor:
+            case Ceiling:
+            case Get:
+            case Write:
+            case Writeln:
+            case Find:
+            case Split:
+            case Replace:
+            case StartsWith:
+            case Join:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // <collectionop> ::= ( sort | sorted | reverse | min | max | sum
+    //                    | rows | cols | transpose | pop | peek | popFront
+    //                    | popBack | front | back | hits | misses | evictions
+    //                    | flush | close | trim ) '(' ')'
+    //                  | ( add | scale | dot | multiply | insert | remove
+    //                    | union | intersection | difference
+    //                    | push | pushFront | pushBack | floor | ceiling
+    //                    | write | writeln | find | split | startsWith
+    //                    | join ) '(' <expr> ')'
+    //                  | ( get | replace ) '(' <expr> ',' <expr> ')'
+    private FunctionExpr procCollectionOp(Expr expr) {
+        Token name = procName();
+        int line = name.line;
+        FunctionExpr.FunctionOp op = collectionOp(name.lexeme);
+
+        Expr arg = null;
+        Expr arg2 = null;
+        eat(Token.Type.OPEN_PAR);
+        if (takesArgument(op))
+            arg = procExpr();
+        if (op == FunctionExpr.FunctionOp.Get || op == FunctionExpr.FunctionOp.Replace) {
+            eat(Token.Type.COMMA);
+            arg2 = procExpr();
+        }
+        eat(Token.Type.CLOSE_PAR);
+
+        return new FunctionExpr(line, op, expr, arg, arg2);
+    }
+
+    // <seqop> ::= ( map | filter ) '(' <lambda> ')' | take '(' <expr> ')'
+    //           | reduce '(' <expr> ',' <lambda> ')' | ( sum | toArray ) '(' ')'
+    private SeqExpr procSeqOp(Expr expr) {
+        Token name = procName();
+        int line = name.line;
+        SeqExpr.SeqOp op;
+        switch (name.lexeme) {
+            case "map":
+                op = SeqExpr.SeqOp.Map;
+                break;
+            case "filter":
+                op = SeqExpr.SeqOp.Filter;
+                break;
+            case "take":
+                op = SeqExpr.SeqOp.Take;
+                break;
+            case "reduce":
+                op = SeqExpr.SeqOp.Reduce;
+                break;
+            case "sum":
+                op = SeqExpr.SeqOp.Sum;
+                break;
+            case "toArray":
+                op = SeqExpr.SeqOp.ToArray;
+                break;
+            default:
+                throw LanguageException.instance(line, UnexpectedLexeme, name.lexeme);
+        }
+
+        Type elementType = SeqExpr.elementType(line, expr.getType());
+        Expr arg = null;
+        Lambda lambda = null;
+        eat(Token.Type.OPEN_PAR);
+        switch (op) {
+            case Map:
+            case Filter:
+                lambda = procLambda(line, elementType);
+                break;
+            case Take:
+                arg = procExpr();
+                break;
+            case Reduce:
+                arg = procExpr();
+                eat(Token.Type.COMMA);
+                lambda = procLambda(line, arg.getType(), elementType);
+                break;
+            default:
+                break;
+        }
+        eat(Token.Type.CLOSE_PAR);
+
+        SeqExpr sexpr = new SeqExpr(line, op, expr, arg, lambda);
+        sexpr.check();
+        return sexpr;
+    }
+
+    // <lambda> ::= <expr>, with the implicit parameters $0, $1, ... in scope
+    private Lambda procLambda(int line, Type ...types) {
+        Environment old = environment;
+        environment = new Environment(old);
+
+        try {
+            Variable[] params = new Variable[types.length];
+            for (int i = 0; i < types.length; i++) {
+                Token name = new Token("$" + i, Token.Type.NAME, null);
+                name.line = line;
+                params[i] = environment.declare(name, types[i], true);
+            }
+
+            return new Lambda(params, procExpr());
+        } finally {
+            environment = old;
+        }
+    }
+
     private Token procName() {
         eat(Token.Type.NAME);
         return previous;